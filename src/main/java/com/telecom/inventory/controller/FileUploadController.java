@@ -1,15 +1,22 @@
 package com.telecom.inventory.controller;
 
 import com.telecom.inventory.dto.FileUploadDTO;
+import com.telecom.inventory.dto.IngestionSchedulerStatusDTO;
+import com.telecom.inventory.model.IngestionPriority;
 import com.telecom.inventory.service.file.FileProcessingService;
+import com.telecom.inventory.service.file.IngestionScheduler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -19,17 +26,41 @@ import java.util.List;
 public class FileUploadController {
 
     private final FileProcessingService fileProcessingService;
+    private final IngestionScheduler ingestionScheduler;
 
     @PostMapping
-    @Operation(summary = "Upload a file containing telephone numbers")
+    @Operation(summary = "Upload a file containing telephone numbers, optionally gzip or zstd compressed")
     public ResponseEntity<FileUploadDTO> uploadFile(
             @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "priority", defaultValue = "NORMAL") IngestionPriority priority,
             @RequestHeader("X-User-Name") String username) {
         
-        FileUploadDTO result = fileProcessingService.uploadFile(file, username);
+        FileUploadDTO result = fileProcessingService.uploadFile(file, priority, username);
         return new ResponseEntity<>(result, HttpStatus.ACCEPTED);
     }
 
+    @PostMapping(value = "/stream", consumes = {"text/csv", "text/plain", "application/octet-stream",
+            "application/gzip", "application/x-gzip", "application/zstd"})
+    @Operation(summary = "Upload a CSV body, optionally gzip or zstd compressed, and ingest it while it is being transferred")
+    public ResponseEntity<FileUploadDTO> uploadStream(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @RequestHeader(value = "X-File-Name", defaultValue = "stream.csv") String fileName,
+            @RequestParam(value = "priority", defaultValue = "NORMAL") IngestionPriority priority,
+            @RequestHeader("X-User-Name") String username) {
+        
+        FileUploadDTO result = fileProcessingService.ingestStream(body, fileName, contentType, contentEncoding,
+                priority, username);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/scheduler")
+    @Operation(summary = "Get the ingestion workers of this node and the chunks queued per priority")
+    public ResponseEntity<IngestionSchedulerStatusDTO> getSchedulerStatus() {
+        return ResponseEntity.ok(ingestionScheduler.getStatus());
+    }
+
     @GetMapping("/{batchId}")
     @Operation(summary = "Get the status of a file upload")
     public ResponseEntity<FileUploadDTO> getFileUploadStatus(@PathVariable String batchId) {
@@ -37,6 +68,12 @@ public class FileUploadController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(value = "/{batchId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream progress events of a file upload until it completes or fails")
+    public SseEmitter streamProgress(@PathVariable String batchId) {
+        return fileProcessingService.streamProgress(batchId);
+    }
+
     @GetMapping
     @Operation(summary = "Get all file uploads")
     public ResponseEntity<List<FileUploadDTO>> getAllFileUploads() {
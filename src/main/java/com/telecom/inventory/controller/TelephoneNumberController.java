@@ -1,17 +1,24 @@
 package com.telecom.inventory.controller;
 
+import com.telecom.inventory.dto.InventoryFacetsDTO;
+import com.telecom.inventory.dto.NumberBlockDTO;
+import com.telecom.inventory.dto.NumberLookupRequestDTO;
 import com.telecom.inventory.dto.NumberStatusHistoryDTO;
 import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.dto.SearchPageDTO;
 import com.telecom.inventory.dto.StatusChangeDTO;
 import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.model.NumberStatus;
 import com.telecom.inventory.service.allocation.NumberAllocationService;
 import com.telecom.inventory.service.lifecycle.LifecycleManagementService;
 import com.telecom.inventory.service.search.TelephoneNumberSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -28,11 +35,57 @@ public class TelephoneNumberController {
 
     @GetMapping("/search")
     @Operation(summary = "Search for telephone numbers based on criteria")
-    public ResponseEntity<List<TelephoneNumberDTO>> searchNumbers(SearchCriteriaDTO criteria) {
+    public ResponseEntity<List<TelephoneNumberDTO>> searchNumbers(@Valid SearchCriteriaDTO criteria) {
         List<TelephoneNumberDTO> results = searchService.searchTelephoneNumbers(criteria);
         return ResponseEntity.ok(results);
     }
 
+    @GetMapping("/search/page")
+    @Operation(summary = "Page through telephone numbers matching the criteria with a cursor, however deep")
+    public ResponseEntity<SearchPageDTO> searchNumbersPage(
+            @Valid SearchCriteriaDTO criteria,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        SearchPageDTO result = searchService.searchPage(criteria, cursor);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Count telephone numbers matching the criteria by status, country code, area code, type and category")
+    public ResponseEntity<InventoryFacetsDTO> getFacets(@Valid SearchCriteriaDTO criteria) {
+        InventoryFacetsDTO result = searchService.getFacets(criteria);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/prefix")
+    @Operation(summary = "List and count the telephone numbers of a country in a number block, by E.164 prefix")
+    public ResponseEntity<NumberBlockDTO> searchByPrefix(
+            @RequestParam("countryCode") String countryCode,
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "status", required = false) NumberStatus status,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        NumberBlockDTO result = searchService.searchByPrefix(countryCode, prefix, status, page, size);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all telephone numbers matching the criteria as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> exportNumbers(@Valid SearchCriteriaDTO criteria) {
+        StreamingResponseBody body = outputStream -> searchService.exportTelephoneNumbers(criteria, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping(value = "/lookup", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Look up the status of many telephone numbers at once, streamed as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> lookupNumbers(@Valid @RequestBody NumberLookupRequestDTO request) {
+        StreamingResponseBody body = outputStream -> searchService.lookupNumbers(request.getNumbers(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get a telephone number by ID")
     public ResponseEntity<TelephoneNumberDTO> getNumberById(@PathVariable Long id) {
@@ -40,6 +93,29 @@ public class TelephoneNumberController {
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/reserve")
+    @Operation(summary = "Reserve up to count available telephone numbers matching the criteria")
+    public ResponseEntity<List<TelephoneNumberDTO>> reserveMatching(
+            @Valid SearchCriteriaDTO criteria,
+            @RequestParam("count") int count,
+            @RequestHeader("X-User-Name") String username) {
+        
+        List<TelephoneNumberDTO> result = allocationService.reserveMatching(criteria, count, username);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/reserve/next")
+    @Operation(summary = "Reserve any one available telephone number of a country code, area code and number type")
+    public ResponseEntity<TelephoneNumberDTO> reservePooled(
+            @RequestParam("countryCode") String countryCode,
+            @RequestParam("areaCode") String areaCode,
+            @RequestParam("numberType") String numberType,
+            @RequestHeader("X-User-Name") String username) {
+        
+        TelephoneNumberDTO result = allocationService.reservePooled(countryCode, areaCode, numberType, username);
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/{id}/reserve")
     @Operation(summary = "Reserve a telephone number")
     public ResponseEntity<TelephoneNumberDTO> reserveNumber(
@@ -1,6 +1,8 @@
 package com.telecom.inventory.dto;
 
+import com.telecom.inventory.model.CompressionType;
 import com.telecom.inventory.model.FileUploadStatus;
+import com.telecom.inventory.model.IngestionPriority;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,7 +11,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class FileUploadDTO {
@@ -19,11 +21,17 @@ public class FileUploadDTO {
     private String originalFileName;
     private Long fileSize;
     private String contentType;
+    private CompressionType compression;
+    private IngestionPriority priority;
     private String batchId;
     private FileUploadStatus status;
     private Integer totalRecords;
     private Integer processedRecords;
+    private Integer insertedRecords;
+    private Integer skippedRecords;
     private Integer failedRecords;
+    private Integer skippedChunks;
+    private Integer updatedRecords;
     private String errorMessage;
     private String uploadedBy;
     private LocalDateTime createdAt;
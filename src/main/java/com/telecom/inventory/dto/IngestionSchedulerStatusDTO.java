@@ -0,0 +1,21 @@
+package com.telecom.inventory.dto;
+
+import com.telecom.inventory.model.IngestionPriority;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionSchedulerStatusDTO {
+
+    private Integer workers;
+    private Integer busyWorkers;
+    private Integer activeUploads;
+    private Map<IngestionPriority, Integer> queuedChunks;
+}
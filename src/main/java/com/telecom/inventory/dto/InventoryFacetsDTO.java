@@ -0,0 +1,24 @@
+package com.telecom.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryFacetsDTO {
+
+    private Long total;
+    
+    // Number of matching numbers per value, most frequent values first
+    private Map<String, Long> status;
+    private Map<String, Long> countryCode;
+    private Map<String, Long> areaCode;
+    private Map<String, Long> numberType;
+    private Map<String, Long> category;
+}
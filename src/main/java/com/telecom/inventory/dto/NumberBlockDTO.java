@@ -0,0 +1,28 @@
+package com.telecom.inventory.dto;
+
+import com.telecom.inventory.model.NumberStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NumberBlockDTO {
+
+    // E.164 prefix of the block, for example +1202555
+    private String prefix;
+    
+    private String countryCode;
+    
+    private NumberStatus status;
+    
+    // Numbers of the block with the status, across all pages
+    private long total;
+    
+    private List<TelephoneNumberDTO> numbers;
+}
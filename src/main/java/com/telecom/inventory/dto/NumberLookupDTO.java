@@ -0,0 +1,24 @@
+package com.telecom.inventory.dto;
+
+import com.telecom.inventory.model.NumberStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NumberLookupDTO {
+
+    // The number as it was requested
+    private String number;
+    
+    private boolean found;
+    
+    // Set only when the number was found
+    private Long id;
+    
+    private NumberStatus status;
+}
@@ -0,0 +1,23 @@
+package com.telecom.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NumberLookupRequestDTO {
+
+    public static final int MAX_NUMBERS = 50_000;
+
+    @NotEmpty(message = "At least one number is required")
+    @Size(max = MAX_NUMBERS, message = "At most " + MAX_NUMBERS + " numbers can be looked up at once")
+    private List<String> numbers;
+}
@@ -1,11 +1,17 @@
 package com.telecom.inventory.dto;
 
+import com.telecom.inventory.model.NumberMatch;
 import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.VanityPattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -13,12 +19,21 @@ import lombok.NoArgsConstructor;
 public class SearchCriteriaDTO {
 
     private String number;
+    private NumberMatch numberMatch;
     private String countryCode;
     private String areaCode;
     private String numberType;
     private String category;
     private String features;
     private NumberStatus status;
+    // Numbers must show all of these vanity patterns
+    private List<VanityPattern> patterns;
+    private Integer minVanityScore;
+    // Most desirable numbers first instead of relevance or number order
+    private Boolean sortByVanity;
+    @Min(value = 0, message = "Page must not be negative")
     private Integer page;
+    @Min(value = 1, message = "Size must be at least 1")
+    @Max(value = 1000, message = "Size must be at most 1000")
     private Integer size;
 }
@@ -0,0 +1,20 @@
+package com.telecom.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageDTO {
+
+    private List<TelephoneNumberDTO> results;
+    
+    // Pass back to get the next page; null once the last page has been returned
+    private String cursor;
+}
@@ -1,6 +1,7 @@
 package com.telecom.inventory.dto;
 
 import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.VanityPattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,6 +10,7 @@ import lombok.NoArgsConstructor;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Data
 @Builder
@@ -35,6 +37,10 @@ public class TelephoneNumberDTO {
     
     private NumberStatus status;
     
+    private Set<VanityPattern> patterns;
+    
+    private Integer vanityScore;
+    
     private UserDTO user;
     
     private LocalDateTime reservedUntil;
@@ -0,0 +1,7 @@
+package com.telecom.inventory.model;
+
+public enum CompressionType {
+    NONE,
+    GZIP,
+    ZSTD
+}
@@ -34,6 +34,16 @@ public class FileUpload {
     @Column(name = "content_type")
     private String contentType;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "compression", nullable = false)
+    @Builder.Default
+    private CompressionType compression = CompressionType.NONE;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority", nullable = false)
+    @Builder.Default
+    private IngestionPriority priority = IngestionPriority.NORMAL;
+
     @Column(name = "batch_id", nullable = false, unique = true)
     private String batchId;
 
@@ -47,9 +57,21 @@ public class FileUpload {
     @Column(name = "processed_records")
     private Integer processedRecords;
 
+    @Column(name = "inserted_records")
+    private Integer insertedRecords;
+
+    @Column(name = "skipped_records")
+    private Integer skippedRecords;
+
     @Column(name = "failed_records")
     private Integer failedRecords;
 
+    @Column(name = "skipped_chunks")
+    private Integer skippedChunks;
+
+    @Column(name = "updated_records")
+    private Integer updatedRecords;
+
     @Column(name = "error_message")
     private String errorMessage;
 
@@ -0,0 +1,79 @@
+package com.telecom.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_upload_shards")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileUploadShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_upload_id", nullable = false)
+    private Long fileUploadId;
+
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+
+    @Column(name = "start_offset", nullable = false)
+    private Long startOffset;
+
+    @Column(name = "end_offset", nullable = false)
+    private Long endOffset;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private FileUploadStatus status;
+
+    @Column(name = "total_records")
+    private Integer totalRecords;
+
+    @Column(name = "inserted_records")
+    private Integer insertedRecords;
+
+    @Column(name = "skipped_records")
+    private Integer skippedRecords;
+
+    @Column(name = "failed_records")
+    private Integer failedRecords;
+
+    @Column(name = "skipped_chunks")
+    private Integer skippedChunks;
+
+    @Column(name = "updated_records")
+    private Integer updatedRecords;
+
+    @Column(name = "checkpoint_offset")
+    private Long checkpointOffset;
+
+    @Column(name = "checkpoint_row")
+    private Long checkpointRow;
+
+    // Next number of the range at the checkpoint offset when a range file was checkpointed inside a range
+    @Column(name = "checkpoint_range_next")
+    private Long checkpointRangeNext;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,20 @@
+package com.telecom.inventory.model;
+
+public enum IngestionPriority {
+    // Time-critical loads such as numbers ported in
+    HIGH(4),
+    NORMAL(2),
+    // Periodic bulk refreshes
+    BULK(1);
+
+    // Share of ingestion workers relative to the other priorities
+    private final int weight;
+
+    IngestionPriority(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,10 @@
+package com.telecom.inventory.model;
+
+public enum NumberMatch {
+    // Digits anywhere in the number
+    CONTAINS,
+    // Number starts with the digits, country code included
+    PREFIX,
+    // Number ends with the digits
+    SUFFIX
+}
@@ -50,6 +50,7 @@ public class TelephoneNumber {
     private String batchId;
 
     @OneToMany(mappedBy = "telephoneNumber", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Builder.Default
     private Set<NumberStatusHistory> statusHistory = new HashSet<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -5,11 +5,20 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.IndexOptions;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Document(indexName = "#{@environment.getProperty('app.elasticsearch.index-name')}")
+@Setting(settingPath = "/elasticsearch/telephone-number-settings.json")
 @Data
 @Builder
 @NoArgsConstructor
@@ -19,7 +28,18 @@ public class TelephoneNumberDocument {
     @Id
     private String id;
 
-    @Field(type = FieldType.Keyword)
+    // Sub-fields index the digits as n-grams, prefixes and reversed prefixes, so partial number
+    // searches are single term lookups instead of wildcard scans of the term dictionary
+    @MultiField(
+            mainField = @Field(type = FieldType.Keyword),
+            otherFields = {
+                    @InnerField(suffix = "contains", type = FieldType.Text, analyzer = "number_contains",
+                            searchAnalyzer = "number_search", indexOptions = IndexOptions.docs, norms = false),
+                    @InnerField(suffix = "prefix", type = FieldType.Text, analyzer = "number_prefix",
+                            searchAnalyzer = "number_search", indexOptions = IndexOptions.docs, norms = false),
+                    @InnerField(suffix = "suffix", type = FieldType.Text, analyzer = "number_suffix",
+                            searchAnalyzer = "number_reverse_search", indexOptions = IndexOptions.docs, norms = false)
+            })
     private String number;
 
     @Field(type = FieldType.Keyword)
@@ -39,4 +59,20 @@ public class TelephoneNumberDocument {
 
     @Field(type = FieldType.Keyword)
     private String status;
+
+    // Vanity patterns of the local number and their desirability, see VanityNumberClassifier
+    @Field(type = FieldType.Keyword)
+    private List<String> patterns;
+
+    @Field(type = FieldType.Integer)
+    private Integer vanityScore;
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second_millis)
+    private LocalDateTime reservedUntil;
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second_millis)
+    private LocalDateTime createdAt;
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second_millis)
+    private LocalDateTime updatedAt;
 }
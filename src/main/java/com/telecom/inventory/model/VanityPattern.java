@@ -0,0 +1,16 @@
+package com.telecom.inventory.model;
+
+public enum VanityPattern {
+    // Same digit four or more times in a row, e.g. 555-7777
+    REPEATING,
+    // Four or more consecutive increasing digits, e.g. 555-1234
+    ASCENDING,
+    // Four or more consecutive decreasing digits, e.g. 555-9876
+    DESCENDING,
+    // Local number ending in a palindrome of four or more digits, e.g. 555-1221
+    MIRROR,
+    // Alternating pair of digits, e.g. 555-1212
+    PAIRS,
+    // Ends in two or more zeros, e.g. 555-2000
+    ROUND
+}
@@ -0,0 +1,28 @@
+package com.telecom.inventory.repository;
+
+import com.telecom.inventory.model.FileChunkDigest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface FileChunkDigestRepository extends JpaRepository<FileChunkDigest, Long> {
+
+    @Query("SELECT d.digest FROM FileChunkDigest d WHERE d.originalFileName = :fileName AND d.uploadedBy = :uploadedBy")
+    List<String> findDigests(@Param("fileName") String originalFileName, @Param("uploadedBy") String uploadedBy);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO file_chunk_digests (original_file_name, uploaded_by, digest, file_upload_id) " +
+                   "VALUES (:fileName, :uploadedBy, :digest, :fileUploadId) " +
+                   "ON CONFLICT (original_file_name, uploaded_by, digest) DO NOTHING", nativeQuery = true)
+    int saveDigest(@Param("fileName") String originalFileName,
+                   @Param("uploadedBy") String uploadedBy,
+                   @Param("digest") String digest,
+                   @Param("fileUploadId") Long fileUploadId);
+}
@@ -3,8 +3,14 @@ package com.telecom.inventory.repository;
 import com.telecom.inventory.model.FileUpload;
 import com.telecom.inventory.model.FileUploadStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +19,20 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
 
     Optional<FileUpload> findByBatchId(String batchId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FileUpload f WHERE f.id = :id")
+    Optional<FileUpload> findByIdWithLock(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.status = :status WHERE f.id = :id AND f.status = :expected")
+    int updateStatus(@Param("id") Long id, @Param("expected") FileUploadStatus expected, @Param("status") FileUploadStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.fileSize = :fileSize WHERE f.id = :id")
+    int updateFileSize(@Param("id") Long id, @Param("fileSize") Long fileSize);
+
     List<FileUpload> findByStatus(FileUploadStatus status);
 
     List<FileUpload> findByUploadedBy(String uploadedBy);
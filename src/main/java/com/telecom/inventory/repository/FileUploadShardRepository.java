@@ -0,0 +1,42 @@
+package com.telecom.inventory.repository;
+
+import com.telecom.inventory.model.FileUploadShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileUploadShardRepository extends JpaRepository<FileUploadShard, Long> {
+
+    Optional<FileUploadShard> findByFileUploadIdAndShardIndex(Long fileUploadId, Integer shardIndex);
+
+    List<FileUploadShard> findByFileUploadIdOrderByShardIndex(Long fileUploadId);
+
+    // Only moves the checkpoint forward, as chunks of a shard are committed by several writers; checkpoints
+    // inside the same range share an offset and move forward by row
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUploadShard s SET s.totalRecords = :totalRecords, s.insertedRecords = :inserted, " +
+           "s.skippedRecords = :skipped, s.failedRecords = :failed, s.skippedChunks = :skippedChunks, " +
+           "s.updatedRecords = :updated, " +
+           "s.checkpointOffset = :offset, s.checkpointRangeNext = :rangeNext, " +
+           "s.checkpointRow = :row, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.id = :id AND (s.checkpointOffset IS NULL OR s.checkpointOffset < :offset " +
+           "OR (s.checkpointOffset = :offset AND s.checkpointRow < :row))")
+    int updateCheckpoint(@Param("id") Long id,
+                         @Param("totalRecords") Integer totalRecords,
+                         @Param("row") Long row,
+                         @Param("offset") Long offset,
+                         @Param("rangeNext") Long rangeNext,
+                         @Param("inserted") Integer inserted,
+                         @Param("skipped") Integer skipped,
+                         @Param("failed") Integer failed,
+                         @Param("skippedChunks") Integer skippedChunks,
+                         @Param("updated") Integer updated);
+}
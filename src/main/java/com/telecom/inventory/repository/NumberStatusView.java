@@ -0,0 +1,15 @@
+package com.telecom.inventory.repository;
+
+import com.telecom.inventory.model.NumberStatus;
+
+/**
+ * Identity and status of a telephone number, read without loading the entity.
+ */
+public interface NumberStatusView {
+
+    Long getId();
+
+    String getNumber();
+
+    NumberStatus getStatus();
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,14 @@ public interface TelephoneNumberRepository extends JpaRepository<TelephoneNumber
 
     Optional<TelephoneNumber> findByNumber(String number);
 
+    @Query("SELECT t.number FROM TelephoneNumber t WHERE t.number IN :numbers")
+    List<String> findExistingNumbers(@Param("numbers") Collection<String> numbers);
+
+    List<TelephoneNumber> findByNumberIn(Collection<String> numbers);
+
+    @Query("SELECT t.id AS id, t.number AS number, t.status AS status FROM TelephoneNumber t WHERE t.number IN :numbers")
+    List<NumberStatusView> findStatusByNumberIn(@Param("numbers") Collection<String> numbers);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT t FROM TelephoneNumber t WHERE t.id = :id")
     Optional<TelephoneNumber> findByIdWithLock(@Param("id") Long id);
@@ -0,0 +1,132 @@
+package com.telecom.inventory.service.allocation;
+
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.model.NumberMatch;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.util.PhoneNumberValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserves any N available numbers matching some criteria in a single statement. Candidate rows are
+ * locked with {@code FOR UPDATE SKIP LOCKED}, so concurrent callers each claim different numbers
+ * instead of queueing on the same rows, and the status update and history inserts happen in the same
+ * round trip. PostgreSQL re-checks the status of a locked row before returning it, so a number changed
+ * by a committed transaction in the meantime is never claimed. Numbers leased to the
+ * {@link ReservationPool} of some node are skipped while their lease lasts.
+ */
+@Component
+@RequiredArgsConstructor
+public class MatchingNumberReserver {
+
+    // Columns of a reserved number returned by the reservation statements, read by mapRow
+    static final String RETURNED_COLUMNS =
+            "t.id, t.number, t.country_code, t.area_code, t.number_type, t.category, t.features, t.status, " +
+            "t.batch_id, t.reserved_until, t.version, t.created_at, t.updated_at";
+
+    // Numbers leased to a node's reservation pool are left to that node until the lease expires
+    static final String NOT_LEASED = "(lease_expires_at IS NULL OR lease_expires_at < now())";
+
+    private static final String PICK =
+            "WITH picked AS (" +
+            "SELECT id FROM telephone_numbers WHERE status = 'AVAILABLE' AND " + NOT_LEASED + "%s " +
+            "ORDER BY number LIMIT ? FOR UPDATE SKIP LOCKED), ";
+
+    private static final String RESERVE =
+            "reserved AS (" +
+            "UPDATE telephone_numbers t SET status = 'RESERVED', user_id = ?, reserved_until = ?, " +
+            "version = t.version + 1, updated_at = now() " +
+            "FROM picked WHERE t.id = picked.id " +
+            "RETURNING " + RETURNED_COLUMNS + "), " +
+            "history AS (" +
+            "INSERT INTO number_status_history (telephone_number_id, old_status, new_status, user_id, reason) " +
+            "SELECT id, 'AVAILABLE', 'RESERVED', ?, 'Number reserved' FROM reserved) " +
+            "SELECT * FROM reserved ORDER BY number";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves up to {@code count} AVAILABLE numbers matching the country code, area code, number type,
+     * category and number of the criteria, the number matched as its search does (contained digits
+     * unless a prefix or suffix match is asked for). Returns the reserved numbers, fewer than requested
+     * when not enough are free.
+     */
+    public List<TelephoneNumber> reserve(SearchCriteriaDTO criteria, int count, Long userId, String username,
+                                         LocalDateTime reservedUntil) {
+        StringBuilder filters = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        addFilter(filters, args, "country_code", criteria.getCountryCode());
+        addFilter(filters, args, "area_code", criteria.getAreaCode());
+        addFilter(filters, args, "number_type", criteria.getNumberType());
+        addFilter(filters, args, "category", criteria.getCategory());
+        
+        String digits = PhoneNumberValidator.searchTerm(criteria.getNumber());
+        if (digits != null) {
+            filters.append(" AND number LIKE ?");
+            args.add(numberPattern(escapeLike(digits),
+                    criteria.getNumberMatch() != null ? criteria.getNumberMatch() : NumberMatch.CONTAINS));
+        }
+        
+        args.add(count);
+        args.add(userId);
+        args.add(Timestamp.valueOf(reservedUntil));
+        args.add(username);
+        
+        return jdbcTemplate.query(String.format(PICK, filters) + RESERVE, (resultSet, rowNum) -> mapRow(resultSet),
+                args.toArray());
+    }
+
+    // Numbers are stored in E.164, so a prefix includes the country code right after the plus sign
+    private static String numberPattern(String digits, NumberMatch match) {
+        switch (match) {
+            case PREFIX:
+                return "+" + digits + "%";
+            case SUFFIX:
+                return "%" + digits;
+            default:
+                return "%" + digits + "%";
+        }
+    }
+
+    // Anything but digits matches no stored number, but must not act as a wildcard either
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static void addFilter(StringBuilder filters, List<Object> args, String column, String value) {
+        if (value != null && !value.isEmpty()) {
+            filters.append(" AND ").append(column).append(" = ?");
+            args.add(value);
+        }
+    }
+
+    static TelephoneNumber mapRow(ResultSet resultSet) throws SQLException {
+        Timestamp reservedUntil = resultSet.getTimestamp("reserved_until");
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+        return TelephoneNumber.builder()
+                .id(resultSet.getLong("id"))
+                .number(resultSet.getString("number"))
+                .countryCode(resultSet.getString("country_code"))
+                .areaCode(resultSet.getString("area_code"))
+                .numberType(resultSet.getString("number_type"))
+                .category(resultSet.getString("category"))
+                .features(resultSet.getString("features"))
+                .status(NumberStatus.valueOf(resultSet.getString("status")))
+                .batchId(resultSet.getString("batch_id"))
+                .reservedUntil(reservedUntil != null ? reservedUntil.toLocalDateTime() : null)
+                .version(resultSet.getLong("version"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .build();
+    }
+}
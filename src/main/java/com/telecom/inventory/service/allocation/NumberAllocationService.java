@@ -1,38 +1,67 @@
 package com.telecom.inventory.service.allocation;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.telecom.inventory.dto.SearchCriteriaDTO;
 import com.telecom.inventory.dto.TelephoneNumberDTO;
 import com.telecom.inventory.exception.ConcurrencyException;
+import com.telecom.inventory.exception.InvalidRequestException;
 import com.telecom.inventory.exception.ResourceNotFoundException;
 import com.telecom.inventory.model.NumberStatus;
 import com.telecom.inventory.model.TelephoneNumber;
 import com.telecom.inventory.model.User;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
 import com.telecom.inventory.repository.UserRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.service.search.AvailabilityIndex;
+import com.telecom.inventory.service.search.NumberPrefixIndex;
 import com.telecom.inventory.service.search.SearchIndexService;
+import com.telecom.inventory.service.search.SearchResultCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NumberAllocationService {
 
+    private static final Duration RESERVATION_PERIOD = Duration.ofHours(24);
+
     private final TelephoneNumberRepository telephoneNumberRepository;
     private final UserRepository userRepository;
     private final SearchIndexService searchIndexService;
+    private final SearchResultCache searchResultCache;
+    private final AvailabilityIndex availabilityIndex;
+    private final NumberPrefixIndex numberPrefixIndex;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final StageMetrics stageMetrics;
+    private final MatchingNumberReserver matchingNumberReserver;
+    private final ReservationPool reservationPool;
+
+    // Ids of users who reserved from a pool recently; users are not deleted while they hold numbers
+    private final Cache<String, Long> userIds = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${app.allocation.max-reserve-count:100}")
+    private int maxReserveCount;
 
     @Transactional
     public TelephoneNumberDTO reserveNumber(Long numberId, String username) {
         try {
             // Use pessimistic locking to prevent concurrent reservations
-            TelephoneNumber telephoneNumber = telephoneNumberRepository.findByIdWithLock(numberId)
+            TelephoneNumber telephoneNumber = stageMetrics.time("reserve", "lock", () -> telephoneNumberRepository.findByIdWithLock(numberId))
                     .orElseThrow(() -> new ResourceNotFoundException("Telephone number not found with id: " + numberId));
             
             // Check if the number is available
@@ -41,40 +70,137 @@ public class NumberAllocationService {
             }
             
             // Get the user
-            User user = userRepository.findByUsername(username)
+            User user = stageMetrics.time("reserve", "db.fetch", () -> userRepository.findByUsername(username))
                     .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
             
             // Set the number as reserved
             NumberStatus oldStatus = telephoneNumber.getStatus();
             telephoneNumber.setStatus(NumberStatus.RESERVED);
             telephoneNumber.setUser(user);
-            telephoneNumber.setReservedUntil(LocalDateTime.now().plusHours(24)); // Reserve for 24 hours
+            telephoneNumber.setReservedUntil(LocalDateTime.now().plus(RESERVATION_PERIOD));
             
             // Add status history
             telephoneNumber.addStatusHistory(oldStatus, NumberStatus.RESERVED, username, "Number reserved");
             
-            // Save the changes
-            telephoneNumber = telephoneNumberRepository.save(telephoneNumber);
+            // Save the changes, flushing so the timing covers the update and the history insert
+            TelephoneNumber saved = stageMetrics.time("reserve", "save", () -> telephoneNumberRepository.saveAndFlush(telephoneNumber));
             
             // Update the search index
-            searchIndexService.updateTelephoneNumberIndex(telephoneNumber);
+            stageMetrics.time("reserve", "index.update", () -> searchIndexService.updateTelephoneNumberIndex(saved));
+            searchResultCache.invalidate(saved, oldStatus);
+            availabilityIndex.update(saved, oldStatus);
+            numberPrefixIndex.update(saved, oldStatus);
             
-            return mapToDTO(telephoneNumber);
+            return mapToDTO(saved);
         } catch (ObjectOptimisticLockingFailureException e) {
             log.error("Concurrent modification detected", e);
             throw new ConcurrencyException("The number has been modified by another user. Please try again.");
         }
     }
 
+    /**
+     * Reserves up to {@code count} available numbers matching the criteria for the user, without the
+     * caller picking them. Numbers locked by concurrent reservations are skipped rather than waited for,
+     * so callers asking for the same block each get different numbers. Returns fewer numbers than asked
+     * for, possibly none, when not enough are available. Filters that only the search index can evaluate
+     * (features and vanity patterns) are not supported.
+     */
+    @Transactional
+    public List<TelephoneNumberDTO> reserveMatching(SearchCriteriaDTO criteria, int count, String username) {
+        if (count < 1 || count > maxReserveCount) {
+            throw new InvalidRequestException("Count must be between 1 and " + maxReserveCount);
+        }
+        if ((criteria.getStatus() != null && criteria.getStatus() != NumberStatus.AVAILABLE)
+                || (criteria.getFeatures() != null && !criteria.getFeatures().isEmpty())
+                || (criteria.getPatterns() != null && !criteria.getPatterns().isEmpty())
+                || criteria.getMinVanityScore() != null) {
+            throw new InvalidRequestException(
+                    "Only countryCode, areaCode, numberType, category and number can select numbers to reserve");
+        }
+        
+        User user = stageMetrics.time("reserve.matching", "db.fetch", () -> userRepository.findByUsername(username))
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
+        
+        // Lock, update and record history for all numbers in one statement
+        LocalDateTime reservedUntil = LocalDateTime.now().plus(RESERVATION_PERIOD);
+        List<TelephoneNumber> reserved = stageMetrics.time("reserve.matching", "save",
+                () -> matchingNumberReserver.reserve(criteria, count, user.getId(), username, reservedUntil));
+        
+        // Update the search index
+        if (!reserved.isEmpty()) {
+            stageMetrics.time("reserve.matching", "index.update", () -> searchIndexService.indexTelephoneNumbers(reserved));
+        }
+        for (TelephoneNumber telephoneNumber : reserved) {
+            searchResultCache.invalidate(telephoneNumber, NumberStatus.AVAILABLE);
+            availabilityIndex.update(telephoneNumber, NumberStatus.AVAILABLE);
+            numberPrefixIndex.update(telephoneNumber, NumberStatus.AVAILABLE);
+        }
+        
+        log.info("Reserved {} of {} requested numbers for {}", reserved.size(), count, username);
+        return reserved.stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reserves any one available number of the country code, area code and number type for the user,
+     * handed out from the numbers this node has leased in advance, so the hot path is a single update
+     * by primary key with its history insert. Falls back to claiming a number with
+     * {@code FOR UPDATE SKIP LOCKED} when the pool has none ready. The search index is updated in the
+     * background.
+     */
+    public TelephoneNumberDTO reservePooled(String countryCode, String areaCode, String numberType, String username) {
+        if (isBlank(countryCode) || isBlank(areaCode) || isBlank(numberType)) {
+            throw new InvalidRequestException("countryCode, areaCode and numberType are required");
+        }
+        
+        Long userId = userIds.getIfPresent(username);
+        if (userId == null) {
+            User user = stageMetrics.time("reserve.pooled", "db.fetch", () -> userRepository.findByUsername(username))
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
+            userId = user.getId();
+            userIds.put(username, userId);
+        }
+        
+        // Each path is a single statement, so no surrounding transaction is needed
+        Long reservingUserId = userId;
+        LocalDateTime reservedUntil = LocalDateTime.now().plus(RESERVATION_PERIOD);
+        TelephoneNumber reserved = stageMetrics.time("reserve.pooled", "pool", () -> reservationPool.take(
+                countryCode, areaCode, numberType, reservingUserId, username, reservedUntil));
+        if (reserved == null) {
+            SearchCriteriaDTO criteria = SearchCriteriaDTO.builder()
+                    .countryCode(countryCode)
+                    .areaCode(areaCode)
+                    .numberType(numberType)
+                    .build();
+            reserved = stageMetrics.time("reserve.pooled", "save",
+                    () -> matchingNumberReserver.reserve(criteria, 1, reservingUserId, username, reservedUntil))
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException("No available number for country code " + countryCode
+                            + ", area code " + areaCode + " and number type " + numberType));
+        }
+        
+        // Cached pages are dropped once the index no longer lists the number as available; dropped any
+        // earlier, a search in between would cache the stale page again
+        TelephoneNumber pooled = reserved;
+        searchIndexService.updateTelephoneNumberIndexAsync(pooled)
+                .whenComplete((result, error) -> searchResultCache.invalidate(pooled, NumberStatus.AVAILABLE));
+        availabilityIndex.update(reserved, NumberStatus.AVAILABLE);
+        numberPrefixIndex.update(reserved, NumberStatus.AVAILABLE);
+        
+        return mapToDTO(reserved);
+    }
+
     @Transactional
     public TelephoneNumberDTO allocateNumber(Long numberId, String username) {
         try {
             // Use pessimistic locking to prevent concurrent allocations
-            TelephoneNumber telephoneNumber = telephoneNumberRepository.findByIdWithLock(numberId)
+            TelephoneNumber telephoneNumber = stageMetrics.time("allocate", "lock", () -> telephoneNumberRepository.findByIdWithLock(numberId))
                     .orElseThrow(() -> new ResourceNotFoundException("Telephone number not found with id: " + numberId));
             
             // Check if the number is reserved by the same user
-            User user = userRepository.findByUsername(username)
+            User user = stageMetrics.time("allocate", "db.fetch", () -> userRepository.findByUsername(username))
                     .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
             
             if (telephoneNumber.getStatus() != NumberStatus.RESERVED || 
@@ -90,19 +216,26 @@ public class NumberAllocationService {
             // Add status history
             telephoneNumber.addStatusHistory(oldStatus, NumberStatus.ALLOCATED, username, "Number allocated");
             
-            // Save the changes
-            telephoneNumber = telephoneNumberRepository.save(telephoneNumber);
+            // Save the changes, flushing so the timing covers the update and the history insert
+            TelephoneNumber saved = stageMetrics.time("allocate", "save", () -> telephoneNumberRepository.saveAndFlush(telephoneNumber));
             
             // Update the search index
-            searchIndexService.updateTelephoneNumberIndex(telephoneNumber);
+            stageMetrics.time("allocate", "index.update", () -> searchIndexService.updateTelephoneNumberIndex(saved));
+            searchResultCache.invalidate(saved, oldStatus);
+            availabilityIndex.update(saved, oldStatus);
+            numberPrefixIndex.update(saved, oldStatus);
             
-            return mapToDTO(telephoneNumber);
+            return mapToDTO(saved);
         } catch (ObjectOptimisticLockingFailureException e) {
             log.error("Concurrent modification detected", e);
             throw new ConcurrencyException("The number has been modified by another user. Please try again.");
         }
     }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
     private TelephoneNumberDTO mapToDTO(TelephoneNumber telephoneNumber) {
         return TelephoneNumberDTO.builder()
                 .id(telephoneNumber.getId())
@@ -0,0 +1,338 @@
+package com.telecom.inventory.service.allocation;
+
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-node pools of available numbers, one per country code, area code and number type, so single
+ * reservations need neither a locking search nor a wait for other reservations. Numbers are claimed
+ * from the database in blocks under a lease: they stay AVAILABLE but carry this node's
+ * {@code lease_owner} until {@code lease_expires_at}, which keeps other nodes' pools and bulk
+ * reservations off them. A background task renews the leases of the numbers still pooled, tops up
+ * pools that ran low and gives back the numbers of pools nobody asked for within a lease period;
+ * the leases of a node that stops without giving its numbers back simply expire.
+ *
+ * Leased numbers are still listed by searches and can be reserved by id by anyone, so a number is
+ * only handed out with a statement that checks it is still AVAILABLE and leased to this node.
+ */
+@Component
+@Slf4j
+public class ReservationPool {
+
+    private static final String LEASE =
+            "WITH picked AS (" +
+            "SELECT id FROM telephone_numbers WHERE status = 'AVAILABLE' AND " + MatchingNumberReserver.NOT_LEASED +
+            " AND country_code = ? AND area_code = ? AND number_type = ? " +
+            "ORDER BY number LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE telephone_numbers t SET lease_owner = ?, lease_expires_at = now() + make_interval(secs => ?) " +
+            "FROM picked WHERE t.id = picked.id RETURNING t.id";
+
+    private static final String RENEW =
+            "UPDATE telephone_numbers SET lease_expires_at = now() + make_interval(secs => ?) " +
+            "WHERE lease_owner = ? AND status = 'AVAILABLE' AND id = ANY(?) RETURNING id";
+
+    private static final String RELEASE =
+            "UPDATE telephone_numbers SET lease_owner = NULL, lease_expires_at = NULL WHERE lease_owner = ? AND id = ANY(?)";
+
+    private static final String RELEASE_ALL =
+            "UPDATE telephone_numbers SET lease_owner = NULL, lease_expires_at = NULL WHERE lease_owner = ?";
+
+    private static final String RESERVE =
+            "WITH reserved AS (" +
+            "UPDATE telephone_numbers t SET status = 'RESERVED', user_id = ?, reserved_until = ?, " +
+            "version = t.version + 1, updated_at = now(), lease_owner = NULL, lease_expires_at = NULL " +
+            "WHERE t.id = ? AND t.lease_owner = ? AND t.status = 'AVAILABLE' " +
+            "RETURNING " + MatchingNumberReserver.RETURNED_COLUMNS + "), " +
+            "history AS (" +
+            "INSERT INTO number_status_history (telephone_number_id, old_status, new_status, user_id, reason) " +
+            "SELECT id, 'AVAILABLE', 'RESERVED', ?, 'Number reserved' FROM reserved) " +
+            "SELECT * FROM reserved";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int blockSize;
+    private final int lowWaterMark;
+    private final Duration leaseDuration;
+    private final Duration renewInterval;
+    private final int maxPools;
+    private final String owner;
+
+    private final Map<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+    private ScheduledExecutorService replenisher;
+
+    public ReservationPool(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                           @Value("${app.allocation.pool.enabled:true}") boolean enabled,
+                           @Value("${app.allocation.pool.block-size:100}") int blockSize,
+                           @Value("${app.allocation.pool.low-water-mark:25}") int lowWaterMark,
+                           @Value("${app.allocation.pool.lease-duration:10m}") Duration leaseDuration,
+                           @Value("${app.allocation.pool.renew-interval:1m}") Duration renewInterval,
+                           @Value("${app.allocation.pool.max-pools:1000}") int maxPools,
+                           @Value("${app.allocation.pool.node-id:${HOSTNAME:node}}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        this.lowWaterMark = lowWaterMark;
+        this.leaseDuration = leaseDuration;
+        this.renewInterval = renewInterval;
+        this.maxPools = maxPools;
+        // Unique per process, so a restarted node does not mistake the leases of its previous run for its own
+        this.owner = nodeId + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        replenisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = renewInterval.toMillis();
+        replenisher.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("reservation.pool.numbers", this, pool -> pool.pools.values().stream()
+                        .mapToInt(Pool::size).sum())
+                .description("Available numbers leased to this node's reservation pools")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gives the leased numbers back, so other nodes can claim them without waiting for the leases to expire.
+     */
+    @PreDestroy
+    public void stop() {
+        if (replenisher == null) {
+            return;
+        }
+        replenisher.shutdownNow();
+        try {
+            int released = jdbcTemplate.update(RELEASE_ALL, owner);
+            log.info("Released {} leased numbers of reservation pool {}", released, owner);
+        } catch (RuntimeException e) {
+            log.warn("Could not release the leases of reservation pool {}; they expire in {}", owner, leaseDuration, e);
+        }
+    }
+
+    /**
+     * Reserves one pooled number of the country code, area code and number type for the user. Returns
+     * null when the pool has no number ready, in which case it is topped up in the background and the
+     * caller should reserve some other way.
+     */
+    public TelephoneNumber take(String countryCode, String areaCode, String numberType, Long userId, String username,
+                                LocalDateTime reservedUntil) {
+        if (!enabled) {
+            return null;
+        }
+        PoolKey key = new PoolKey(countryCode, areaCode, numberType);
+        Pool pool = pools.get(key);
+        if (pool == null) {
+            if (pools.size() >= maxPools) {
+                return null;
+            }
+            pool = pools.computeIfAbsent(key, k -> new Pool());
+        }
+        pool.lastUsed = System.currentTimeMillis();
+
+        try {
+            Long id;
+            while ((id = pool.poll()) != null) {
+                List<TelephoneNumber> reserved = jdbcTemplate.query(RESERVE,
+                        (resultSet, rowNum) -> MatchingNumberReserver.mapRow(resultSet),
+                        userId, Timestamp.valueOf(reservedUntil), id, owner, username);
+                if (!reserved.isEmpty()) {
+                    return reserved.get(0);
+                }
+                // Reserved by id elsewhere in the meantime, or the lease was lost; try the next one
+            }
+            return null;
+        } finally {
+            if (pool.size() < lowWaterMark) {
+                replenishLater(key, pool);
+            }
+        }
+    }
+
+    private void replenishLater(PoolKey key, Pool pool) {
+        if (replenisher == null || !pool.replenishing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replenisher.execute(() -> {
+                try {
+                    replenish(key, pool);
+                } finally {
+                    pool.replenishing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            pool.replenishing.set(false);
+        }
+    }
+
+    /**
+     * Renews the leases of pooled numbers, drops numbers that are no longer leased to this node, gives
+     * back the numbers of idle pools and tops up the others.
+     */
+    void maintain() {
+        long idleSince = System.currentTimeMillis() - leaseDuration.toMillis();
+        for (Map.Entry<PoolKey, Pool> entry : pools.entrySet()) {
+            PoolKey key = entry.getKey();
+            Pool pool = entry.getValue();
+            try {
+                if (pool.lastUsed < idleSince) {
+                    pools.remove(key);
+                    Long[] ids = pool.drain();
+                    if (ids.length > 0) {
+                        jdbcTemplate.update(connection -> {
+                            PreparedStatement statement = connection.prepareStatement(RELEASE);
+                            statement.setString(1, owner);
+                            statement.setArray(2, connection.createArrayOf("bigint", ids));
+                            return statement;
+                        });
+                    }
+                    log.debug("Released {} numbers of idle reservation pool {}", ids.length, key);
+                    continue;
+                }
+
+                Long[] ids = pool.snapshot();
+                if (ids.length > 0) {
+                    Set<Long> renewed = new HashSet<>(jdbcTemplate.query(connection -> {
+                        PreparedStatement statement = connection.prepareStatement(RENEW);
+                        statement.setLong(1, leaseDuration.getSeconds());
+                        statement.setString(2, owner);
+                        statement.setArray(3, connection.createArrayOf("bigint", ids));
+                        return statement;
+                    }, (resultSet, rowNum) -> resultSet.getLong(1)));
+                    pool.retain(renewed, ids);
+                }
+                replenish(key, pool);
+            } catch (RuntimeException e) {
+                log.error("Could not maintain reservation pool {}", key, e);
+            }
+        }
+    }
+
+    void replenish(PoolKey key, Pool pool) {
+        int missing = blockSize - pool.size();
+        // A pool given back as idle in the meantime is not topped up, or its leases would never be renewed
+        if (pools.get(key) != pool || missing < Math.max(1, blockSize - lowWaterMark)) {
+            return;
+        }
+        List<Long> leased = jdbcTemplate.query(LEASE, (resultSet, rowNum) -> resultSet.getLong(1),
+                key.countryCode, key.areaCode, key.numberType, missing, owner, leaseDuration.getSeconds());
+        pool.addAll(leased);
+        log.debug("Leased {} numbers to reservation pool {}", leased.size(), key);
+    }
+
+    int size(String countryCode, String areaCode, String numberType) {
+        Pool pool = pools.get(new PoolKey(countryCode, areaCode, numberType));
+        return pool != null ? pool.size() : 0;
+    }
+
+    static final class PoolKey {
+        private final String countryCode;
+        private final String areaCode;
+        private final String numberType;
+
+        PoolKey(String countryCode, String areaCode, String numberType) {
+            this.countryCode = countryCode;
+            this.areaCode = areaCode;
+            this.numberType = numberType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey other = (PoolKey) o;
+            return countryCode.equals(other.countryCode) && areaCode.equals(other.areaCode)
+                    && numberType.equals(other.numberType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(countryCode, areaCode, numberType);
+        }
+
+        @Override
+        public String toString() {
+            return countryCode + "/" + areaCode + "/" + numberType;
+        }
+    }
+
+    /**
+     * Ids of the numbers of one pool, in number order as leased; guarded by itself.
+     */
+    static final class Pool {
+        private final ArrayDeque<Long> ids = new ArrayDeque<>();
+        private final AtomicBoolean replenishing = new AtomicBoolean();
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        synchronized Long poll() {
+            return ids.poll();
+        }
+
+        synchronized int size() {
+            return ids.size();
+        }
+
+        synchronized void addAll(List<Long> leased) {
+            ids.addAll(leased);
+        }
+
+        synchronized Long[] snapshot() {
+            return ids.toArray(new Long[0]);
+        }
+
+        synchronized Long[] drain() {
+            Long[] drained = ids.toArray(new Long[0]);
+            ids.clear();
+            return drained;
+        }
+
+        /**
+         * Drops the ids of the snapshot whose lease was not renewed; ids added since are kept.
+         */
+        synchronized void retain(Set<Long> renewed, Long[] snapshot) {
+            for (Long id : snapshot) {
+                if (!renewed.contains(id)) {
+                    ids.remove(id);
+                }
+            }
+        }
+    }
+}
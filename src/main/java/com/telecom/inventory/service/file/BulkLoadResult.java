@@ -0,0 +1,29 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.TelephoneNumber;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BulkLoadResult {
+
+    // Rows that were actually inserted (duplicates are silently skipped by the merge)
+    private final List<TelephoneNumber> inserted;
+
+    // Rows written to the staging table
+    private final int staged;
+
+    // Rows rejected before staging because they could never satisfy the table constraints
+    private final int rejected;
+
+    // Existing available numbers whose attributes were changed to those of their staged row
+    private final List<NumberUpdate> updated;
+
+    public BulkLoadResult(List<TelephoneNumber> inserted, int staged, int rejected) {
+        this(inserted, staged, rejected, Collections.emptyList());
+    }
+}
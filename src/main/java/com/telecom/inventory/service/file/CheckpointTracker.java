@@ -0,0 +1,92 @@
+package com.telecom.inventory.service.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Follows chunks that are written out of order and keeps the low-water mark: the point up to which
+ * every chunk has been committed, with the running totals of those chunks. Only that point is safe to
+ * resume from, since later chunks may still be missing.
+ */
+public class CheckpointTracker {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Checkpoint {
+        private final int totalRecords;
+        private final long offset;
+        // Next number of the range starting at offset when the checkpoint falls inside it, otherwise null
+        private final Long rangeNext;
+        private final ChunkResult totals;
+
+        public Checkpoint(int totalRecords, long offset, ChunkResult totals) {
+            this(totalRecords, offset, null, totals);
+        }
+    }
+
+    private final Map<Long, IngestionChunk> completed = new HashMap<>();
+    private long nextSequence;
+    private Checkpoint current;
+    private long lastSavedAt;
+
+    public CheckpointTracker(Checkpoint start) {
+        this.current = start;
+    }
+
+    /**
+     * Returns the checkpoint as it would be once {@code chunk} is committed, without recording it.
+     */
+    public synchronized Checkpoint preview(IngestionChunk chunk) {
+        return advance(chunk, false);
+    }
+
+    /**
+     * Records a committed chunk and returns the new checkpoint.
+     */
+    public synchronized Checkpoint complete(IngestionChunk chunk) {
+        completed.put(chunk.getSequence(), chunk);
+        return advance(chunk, true);
+    }
+
+    /**
+     * Returns true at most once per interval, to write checkpoints to the database at a coarse pace.
+     */
+    public synchronized boolean claimSave(long now, long intervalMillis) {
+        if (now - lastSavedAt < intervalMillis) {
+            return false;
+        }
+        lastSavedAt = now;
+        return true;
+    }
+
+    public synchronized Checkpoint current() {
+        return current;
+    }
+
+    private Checkpoint advance(IngestionChunk candidate, boolean commit) {
+        Checkpoint checkpoint = current;
+        long sequence = nextSequence;
+        
+        while (true) {
+            IngestionChunk chunk = sequence == candidate.getSequence() ? candidate : completed.get(sequence);
+            if (chunk == null) {
+                break;
+            }
+            checkpoint = new Checkpoint(chunk.getTotalRecords(), chunk.getOffset(), chunk.getRangeNext(),
+                    checkpoint.getTotals().plus(chunk.getResult()));
+            if (commit) {
+                completed.remove(sequence);
+            }
+            sequence++;
+        }
+        
+        if (commit) {
+            nextSequence = sequence;
+            current = checkpoint;
+        }
+        return checkpoint;
+    }
+}
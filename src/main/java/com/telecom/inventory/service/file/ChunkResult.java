@@ -0,0 +1,59 @@
+package com.telecom.inventory.service.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkResult {
+
+    // Rows written to telephone_numbers
+    private int inserted;
+
+    // Rows whose number already existed (in the database or earlier in the same chunk) and was left as it was
+    private int skipped;
+
+    // Rows that could not be loaded
+    private int failed;
+
+    // Chunks left out because the same content was already loaded from an earlier upload of the file
+    private int skippedChunks;
+
+    // Existing available numbers whose attributes were changed by a resent file
+    private int updated;
+
+    public ChunkResult(int inserted, int skipped, int failed) {
+        this(inserted, skipped, failed, 0, 0);
+    }
+
+    public ChunkResult(int inserted, int skipped, int failed, int skippedChunks) {
+        this(inserted, skipped, failed, skippedChunks, 0);
+    }
+
+    public static ChunkResult failed(int rows) {
+        return new ChunkResult(0, 0, rows);
+    }
+
+    public static ChunkResult unchanged(int rows) {
+        return new ChunkResult(0, rows, 0, 1);
+    }
+
+    public void add(ChunkResult other) {
+        this.inserted += other.inserted;
+        this.skipped += other.skipped;
+        this.failed += other.failed;
+        this.skippedChunks += other.skippedChunks;
+        this.updated += other.updated;
+    }
+
+    public ChunkResult plus(ChunkResult other) {
+        return new ChunkResult(inserted + other.inserted, skipped + other.skipped, failed + other.failed,
+                skippedChunks + other.skippedChunks, updated + other.updated);
+    }
+
+    public int getProcessed() {
+        return inserted + updated + skipped;
+    }
+}
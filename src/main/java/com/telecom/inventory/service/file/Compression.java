@@ -0,0 +1,84 @@
+package com.telecom.inventory.service.file;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.telecom.inventory.model.CompressionType;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Detection and streaming decompression of gzip and zstd uploads.
+ */
+public final class Compression {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAGIC_LENGTH = 4;
+
+    private Compression() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Detects the compression of a stored upload from its content type, such as {@code application/gzip},
+     * falling back to the leading magic bytes of the file.
+     */
+    public static CompressionType detect(String contentType, Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] magic = new byte[MAGIC_LENGTH];
+            return detect(contentType, magic, inputStream.readNBytes(magic, 0, MAGIC_LENGTH));
+        }
+    }
+
+    /**
+     * Detects the compression of a request body from a content type or content encoding, falling back
+     * to the magic bytes, which are read ahead without being consumed.
+     */
+    public static CompressionType detect(String hint, BufferedInputStream inputStream) throws IOException {
+        byte[] magic = new byte[MAGIC_LENGTH];
+        inputStream.mark(MAGIC_LENGTH);
+        int length = inputStream.readNBytes(magic, 0, MAGIC_LENGTH);
+        inputStream.reset();
+        return detect(hint, magic, length);
+    }
+
+    static CompressionType detect(String hint, byte[] magic, int length) {
+        if (hint != null) {
+            String value = hint.toLowerCase(Locale.ROOT);
+            if (value.contains("gzip")) {
+                return CompressionType.GZIP;
+            }
+            if (value.contains("zstd")) {
+                return CompressionType.ZSTD;
+            }
+        }
+        
+        if (length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return CompressionType.GZIP;
+        }
+        if (length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            return CompressionType.ZSTD;
+        }
+        return CompressionType.NONE;
+    }
+
+    public static BufferedInputStream buffered(InputStream inputStream) {
+        return new BufferedInputStream(inputStream, BUFFER_SIZE);
+    }
+
+    public static InputStream decompress(InputStream inputStream, CompressionType compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(inputStream);
+            default:
+                return inputStream;
+        }
+    }
+}
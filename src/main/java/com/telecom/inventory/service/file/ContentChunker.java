@@ -0,0 +1,80 @@
+package com.telecom.inventory.service.file;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Groups rows into content-defined chunks and fingerprints each chunk with SHA-256. A chunk ends after
+ * a row whose own hash matches a bit mask, so boundaries depend only on the rows around them: when a
+ * vendor resends a file with a few rows added or changed, only the chunks containing those rows get a
+ * new digest and every other chunk can be recognized as already loaded.
+ */
+public class ContentChunker {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] header;
+    private final int minRows;
+    private final int maxRows;
+    private final int boundaryMask;
+    private final MessageDigest digest;
+    private int rows;
+
+    /**
+     * @param averageRows target number of rows per chunk; chunks hold between a quarter and twice as many
+     * @param header      raw header row, mixed into every digest so a change of column layout changes all chunks
+     */
+    public ContentChunker(int averageRows, byte[] header) {
+        this.header = header;
+        this.minRows = Math.max(1, averageRows / 4);
+        this.maxRows = Math.max(minRows, averageRows * 2);
+        this.boundaryMask = Integer.highestOneBit(Math.max(1, averageRows - minRows)) - 1;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update(header);
+    }
+
+    /**
+     * Adds a row to the current chunk and returns whether the chunk ends after it.
+     */
+    public boolean add(ByteBuffer row) {
+        int hash = hash(row.duplicate());
+        digest.update(row);
+        digest.update((byte) '\n');
+        rows++;
+        return rows >= maxRows || (rows >= minRows && (hash & boundaryMask) == 0);
+    }
+
+    /**
+     * Returns the hex digest of the current chunk and starts a new one.
+     */
+    public String finish() {
+        byte[] bytes = digest.digest();
+        digest.update(header);
+        rows = 0;
+        
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    // FNV-1a with a final avalanche so the low bits used by the mask are well mixed
+    private static int hash(ByteBuffer row) {
+        int hash = 0x811C9DC5;
+        while (row.hasRemaining()) {
+            hash ^= row.get() & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
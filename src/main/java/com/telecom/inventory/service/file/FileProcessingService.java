@@ -1,38 +1,59 @@
 package com.telecom.inventory.service.file;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
 import com.telecom.inventory.dto.FileUploadDTO;
 import com.telecom.inventory.exception.FileProcessingException;
+import com.telecom.inventory.model.CompressionType;
 import com.telecom.inventory.model.FileUpload;
+import com.telecom.inventory.model.FileUploadShard;
 import com.telecom.inventory.model.FileUploadStatus;
+import com.telecom.inventory.model.IngestionPriority;
 import com.telecom.inventory.model.NumberStatus;
 import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.repository.FileChunkDigestRepository;
 import com.telecom.inventory.repository.FileUploadRepository;
+import com.telecom.inventory.repository.FileUploadShardRepository;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
+import com.telecom.inventory.service.file.parser.ColumnLayout;
+import com.telecom.inventory.service.file.parser.CsvParser;
+import com.telecom.inventory.service.file.parser.MappedCsvParser;
+import com.telecom.inventory.service.file.parser.PackedRows;
+import com.telecom.inventory.service.file.parser.StreamingCsvParser;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.service.search.AvailabilityIndex;
+import com.telecom.inventory.service.search.NumberPrefixIndex;
 import com.telecom.inventory.service.search.SearchIndexService;
+import com.telecom.inventory.util.PhoneNumberValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.File;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,16 +61,60 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FileProcessingService {
 
+    private static final String SHARD_SEPARATOR = ":";
+
+    // Larger ranges in range files are rejected
+    private static final long MAX_RANGE_SIZE = 100_000_000L;
+
+    // Record counters are ints, so ranges past this many numbers in one file are rejected
+    private static final long MAX_RANGE_NUMBERS_PER_FILE = 1_000_000_000L;
+
     private final FileUploadRepository fileUploadRepository;
+    private final FileUploadShardRepository shardRepository;
     private final TelephoneNumberRepository telephoneNumberRepository;
     private final SearchIndexService searchIndexService;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final FileChunkDigestRepository chunkDigestRepository;
+    private final PostgresBulkLoader bulkLoader;
+    private final UploadProgressBroadcaster progressBroadcaster;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionScheduler ingestionScheduler;
+    private final AvailabilityIndex availabilityIndex;
+    private final NumberPrefixIndex numberPrefixIndex;
+    private final StageMetrics stageMetrics;
 
     @Value("${app.file-processing.chunk-size}")
     private int chunkSize;
 
-    @Value("${app.file-processing.max-threads}")
-    private int maxThreads;
+    @Value("${app.file-processing.range-chunk-size:10000}")
+    private int rangeChunkSize;
+
+    @Value("${app.file-processing.shard-size:64MB}")
+    private DataSize shardSize;
+
+    @Value("${app.file-processing.pipeline.queue-capacity:4}")
+    private int pipelineQueueCapacity;
+
+    @Value("${app.file-processing.pipeline.validate-threads:2}")
+    private int validateThreads;
+
+    @Value("${app.file-processing.pipeline.index-threads:2}")
+    private int indexThreads;
+
+    @Value("${app.file-processing.delta.enabled:true}")
+    private boolean deltaEnabled;
+
+    @Value("${app.file-processing.ingestion-mode:JPA}")
+    private IngestionMode ingestionMode;
+
+    @Value("${app.file-processing.progress.checkpoint-interval:5s}")
+    private Duration checkpointInterval;
+
+    @Value("${app.file-processing.progress.refresh-interval:10s}")
+    private Duration progressRefreshInterval;
+
+    @Value("${app.file-processing.progress.sse-timeout:30m}")
+    private Duration sseTimeout;
 
     @Value("${app.file-processing.temp-directory}")
     private String tempDirectory;
@@ -57,9 +122,7 @@ public class FileProcessingService {
     @Value("${app.kafka.topics.file-processing}")
     private String fileProcessingTopic;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-
-    public FileUploadDTO uploadFile(MultipartFile file, String username) {
+    public FileUploadDTO uploadFile(MultipartFile file, IngestionPriority priority, String username) {
         try {
             // Create a unique batch ID for this upload
             String batchId = UUID.randomUUID().toString();
@@ -74,12 +137,17 @@ public class FileProcessingService {
             Path filePath = tempDir.resolve(fileName);
             Files.copy(file.getInputStream(), filePath);
             
+            // Compressed uploads stay compressed on disk and are decompressed while they are parsed
+            CompressionType compression = Compression.detect(file.getContentType(), filePath);
+            
             // Create a file upload record
             FileUpload fileUpload = FileUpload.builder()
                     .fileName(fileName)
                     .originalFileName(file.getOriginalFilename())
                     .fileSize(file.getSize())
                     .contentType(file.getContentType())
+                    .compression(compression)
+                    .priority(priority)
                     .batchId(batchId)
                     .status(FileUploadStatus.PENDING)
                     .uploadedBy(username)
@@ -87,8 +155,14 @@ public class FileProcessingService {
             
             fileUpload = fileUploadRepository.save(fileUpload);
             
-            // Send a message to Kafka to process the file asynchronously
-            kafkaTemplate.send(fileProcessingTopic, batchId);
+            // Split the file into row-aligned shards so every consumer in the group can take a slice
+            List<FileUploadShard> shards = createShards(fileUpload, filePath);
+            
+            // Send one message per shard to Kafka to process the file asynchronously
+            for (FileUploadShard shard : shards) {
+                String message = batchId + SHARD_SEPARATOR + shard.getShardIndex();
+                kafkaTemplate.send(fileProcessingTopic, message, message);
+            }
             
             return mapToDTO(fileUpload);
         } catch (IOException e) {
@@ -97,195 +171,739 @@ public class FileProcessingService {
         }
     }
 
+    /**
+     * Ingests a CSV body while it is still being received: rows are parsed straight from the stream and
+     * handed to a writer thread through a bounded queue, without copying the upload to the temp directory.
+     * Gzip and zstd bodies, announced by the content type or encoding or recognized by their magic bytes,
+     * are decompressed on the fly. Returns once the whole stream has been loaded.
+     * Streamed uploads cannot be resumed after a crash.
+     */
+    public FileUploadDTO ingestStream(InputStream inputStream, String originalFileName, String contentType,
+                                      String contentEncoding, IngestionPriority priority, String username) {
+        String batchId = UUID.randomUUID().toString();
+        log.info("Streaming ingestion of {} with batch ID: {}", originalFileName, batchId);
+        
+        BufferedInputStream body = Compression.buffered(inputStream);
+        CompressionType compression;
+        try {
+            compression = Compression.detect(contentEncoding, body);
+            if (compression == CompressionType.NONE) {
+                compression = Compression.detect(contentType, body);
+            }
+        } catch (IOException e) {
+            throw new FileProcessingException("Failed to read upload: " + e.getMessage());
+        }
+        
+        FileUpload fileUpload = fileUploadRepository.save(FileUpload.builder()
+                .fileName(batchId + "_" + originalFileName)
+                .originalFileName(originalFileName)
+                .fileSize(0L)
+                .contentType(contentType)
+                .compression(compression)
+                .priority(priority)
+                .batchId(batchId)
+                .status(FileUploadStatus.PROCESSING)
+                .uploadedBy(username)
+                .build());
+        
+        // A streamed upload is a single shard whose end is only known once the stream is exhausted
+        FileUploadShard shard = shardRepository.save(FileUploadShard.builder()
+                .fileUploadId(fileUpload.getId())
+                .shardIndex(0)
+                .startOffset(0L)
+                .endOffset(0L)
+                .status(FileUploadStatus.PROCESSING)
+                .build());
+        
+        try (CsvParser parser = new StreamingCsvParser(Compression.decompress(body, compression))) {
+            try {
+                streamRows(parser, fileUpload, shard);
+                shard.setStatus(FileUploadStatus.COMPLETED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FileProcessingException("Streaming ingestion interrupted");
+            } catch (Exception e) {
+                log.error("Error streaming file with batch ID {}", batchId, e);
+                shard.setStatus(FileUploadStatus.FAILED);
+                shard.setErrorMessage(e.getMessage());
+            }
+            shard.setEndOffset(parser.getPosition());
+        } catch (IOException e) {
+            log.warn("Could not close upload stream for batch ID {}", batchId, e);
+        }
+        
+        fileUploadRepository.updateFileSize(fileUpload.getId(), shard.getEndOffset());
+        completeShard(shard);
+        progressBroadcaster.finish(batchId, shard.getShardIndex());
+        
+        return getFileUploadStatus(batchId);
+    }
+
+    private void streamRows(CsvParser parser, FileUpload fileUpload, FileUploadShard shard) throws IOException, InterruptedException {
+        // Read header
+        if (!parser.next()) {
+            throw new FileProcessingException("Empty file");
+        }
+        
+        // Resolve column positions from the header
+        ColumnLayout layout = ColumnLayout.fromHeader(parser.row().toArray());
+        byte[] header = toArray(parser.rowBytes());
+        
+        CheckpointTracker tracker = new CheckpointTracker(
+                new CheckpointTracker.Checkpoint(0, parser.getPosition(), new ChunkResult()));
+        ingest(parser, layout, header, fileUpload, shard, tracker);
+    }
+
+    private List<FileUploadShard> createShards(FileUpload fileUpload, Path filePath) throws IOException {
+        // Rows cannot be located inside a compressed file, so it is processed as a single shard; so is a
+        // range file, whose rows are few and whose number count is capped per file
+        List<Long> boundaries = fileUpload.getCompression() == CompressionType.NONE && !isRangeFile(filePath)
+                ? ShardPlanner.planBoundaries(filePath, shardSize.toBytes())
+                : List.of(0L, Files.size(filePath));
+        
+        List<FileUploadShard> shards = new ArrayList<>(boundaries.size() - 1);
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            shards.add(FileUploadShard.builder()
+                    .fileUploadId(fileUpload.getId())
+                    .shardIndex(i)
+                    .startOffset(boundaries.get(i))
+                    .endOffset(boundaries.get(i + 1))
+                    .status(FileUploadStatus.PENDING)
+                    .build());
+        }
+        
+        return shardRepository.saveAll(shards);
+    }
+
+    private static boolean isRangeFile(Path filePath) throws IOException {
+        try (CsvParser parser = MappedCsvParser.open(filePath)) {
+            return parser.next() && ColumnLayout.fromHeader(parser.row().toArray()).isRange();
+        } catch (FileProcessingException e) {
+            // Reported when the shards are processed
+            return false;
+        }
+    }
+
     @KafkaListener(topics = "${app.kafka.topics.file-processing}", groupId = "${spring.kafka.consumer.group-id}")
-    public void processFile(String batchId) {
-        log.info("Processing file with batch ID: {}", batchId);
+    public void processFile(String message) {
+        // Messages are "<batchId>:<shardIndex>"; a bare batch ID refers to the first shard
+        int separator = message.lastIndexOf(SHARD_SEPARATOR);
+        String batchId = separator > 0 ? message.substring(0, separator) : message;
+        int shardIndex = separator > 0 ? Integer.parseInt(message.substring(separator + 1)) : 0;
+        
+        log.info("Processing shard {} of file with batch ID: {}", shardIndex, batchId);
         
         FileUpload fileUpload = fileUploadRepository.findByBatchId(batchId)
                 .orElseThrow(() -> new FileProcessingException("File upload not found for batch ID: " + batchId));
         
+        FileUploadShard shard = shardRepository.findByFileUploadIdAndShardIndex(fileUpload.getId(), shardIndex)
+                .orElseThrow(() -> new FileProcessingException("Shard " + shardIndex + " not found for batch ID: " + batchId));
+        
+        // Redelivered message for a shard that already finished
+        if (shard.getStatus() == FileUploadStatus.COMPLETED) {
+            log.info("Shard {} of batch ID {} was already processed, ignoring", shardIndex, batchId);
+            return;
+        }
+        
+        Path filePath = Paths.get(tempDirectory, fileUpload.getFileName());
+        
         try {
             // Update status to PROCESSING
-            fileUpload.setStatus(FileUploadStatus.PROCESSING);
-            fileUploadRepository.save(fileUpload);
+            shard.setStatus(FileUploadStatus.PROCESSING);
+            shard = shardRepository.save(shard);
+            fileUploadRepository.updateStatus(fileUpload.getId(), FileUploadStatus.PENDING, FileUploadStatus.PROCESSING);
+            
+            // Process the shard
+            processShard(filePath, fileUpload, shard);
+            
+            shard.setStatus(FileUploadStatus.COMPLETED);
+        } catch (Exception e) {
+            log.error("Error processing shard {} of batch ID {}", shardIndex, batchId, e);
+            shard.setStatus(FileUploadStatus.FAILED);
+            shard.setErrorMessage(e.getMessage());
+        }
+        
+        // Roll the shard up into the parent upload
+        boolean uploadCompleted = completeShard(shard);
+        progressBroadcaster.finish(batchId, shardIndex);
+        
+        if (uploadCompleted) {
+            try {
+                // Clean up the temporary file once every shard is done
+                Files.deleteIfExists(filePath);
+            } catch (IOException e) {
+                log.warn("Could not delete temporary file {}", filePath, e);
+            }
+        }
+    }
+
+    private void processShard(Path filePath, FileUpload fileUpload, FileUploadShard shard) throws IOException {
+        String batchId = fileUpload.getBatchId();
+        try (CsvParser parser = openParser(filePath, fileUpload.getCompression(), shard)) {
+            // Every shard reads the header at the start of the file
+            if (!parser.next()) {
+                throw new FileProcessingException("Empty file");
+            }
             
-            // Process the file
-            Path filePath = Paths.get(tempDirectory, fileUpload.getFileName());
-            File file = filePath.toFile();
+            // Resolve column positions from the header
+            ColumnLayout layout = ColumnLayout.fromHeader(parser.row().toArray());
+            byte[] header = toArray(parser.rowBytes());
             
-            processCSVFile(file, batchId, fileUpload);
+            long resumeOffset = shard.getStartOffset();
+            CheckpointTracker.Checkpoint start = new CheckpointTracker.Checkpoint(0, resumeOffset, new ChunkResult());
             
-            // Update status to COMPLETED
-            fileUpload.setStatus(FileUploadStatus.COMPLETED);
-            fileUploadRepository.save(fileUpload);
+            // Resume after the last committed chunk when the message is redelivered
+            Long checkpointOffset = shard.getCheckpointOffset();
+            if (checkpointOffset != null && (checkpointOffset > resumeOffset || shard.getCheckpointRangeNext() != null)) {
+                log.info("Resuming shard {} of batch {} from offset {} after row {}",
+                        shard.getShardIndex(), batchId, checkpointOffset, shard.getCheckpointRow());
+                resumeOffset = checkpointOffset;
+                start = new CheckpointTracker.Checkpoint(shard.getCheckpointRow().intValue(), checkpointOffset,
+                        shard.getCheckpointRangeNext(), shardTotals(shard));
+            }
             
-            // Clean up the temporary file
-            Files.deleteIfExists(filePath);
+            // The first shard starts right after the header
+            if (resumeOffset > parser.getPosition()) {
+                parser.seek(resumeOffset);
+            }
             
-        } catch (Exception e) {
-            log.error("Error processing file", e);
-            fileUpload.setStatus(FileUploadStatus.FAILED);
-            fileUpload.setErrorMessage(e.getMessage());
-            fileUploadRepository.save(fileUpload);
+            ingest(parser, layout, header, fileUpload, shard, new CheckpointTracker(start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileProcessingException("Processing of shard " + shard.getShardIndex() + " interrupted");
         }
     }
 
-    private void processCSVFile(File file, String batchId, FileUpload fileUpload) throws IOException, CsvValidationException {
-        try (CSVReader reader = new CSVReader(new FileReader(file))) {
-            // Read header
-            String[] header = reader.readNext();
-            if (header == null) {
-                throw new FileProcessingException("Empty file");
+    private static CsvParser openParser(Path filePath, CompressionType compression, FileUploadShard shard) throws IOException {
+        if (compression == CompressionType.NONE) {
+            return MappedCsvParser.open(filePath, shard.getEndOffset());
+        }
+        
+        // Offsets and checkpoints of compressed files count decompressed bytes; resuming decompresses up to the checkpoint
+        InputStream inputStream = Files.newInputStream(filePath);
+        try {
+            return new StreamingCsvParser(Compression.decompress(inputStream, compression));
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the remaining rows of the parser in chunks and runs them through the validate, persist and
+     * index stages. The shard's counters and checkpoint are left at the last point where every chunk
+     * before it was committed, also when ingestion fails halfway.
+     *
+     * With delta ingestion on, chunk boundaries are content-defined and every chunk is fingerprinted;
+     * chunks whose digest was recorded by an earlier upload of the same file by the same user are
+     * counted as skipped without touching the database. The other chunks also update the available
+     * numbers whose attributes changed since the earlier upload; numbers left out of the resent file
+     * are not detected and stay as they are.
+     *
+     * Chunks are written on the node's shared ingestion workers, in the upload's lane of the
+     * {@link IngestionScheduler}, so concurrent uploads share the database budget by priority.
+     */
+    private void ingest(CsvParser parser, ColumnLayout layout, byte[] header, FileUpload fileUpload,
+                        FileUploadShard shard, CheckpointTracker tracker) throws IOException, InterruptedException {
+        boolean delta = deltaEnabled && !layout.isRange();
+        Set<String> knownDigests = delta
+                ? new HashSet<>(chunkDigestRepository.findDigests(fileUpload.getOriginalFileName(), fileUpload.getUploadedBy()))
+                : Collections.emptySet();
+        
+        // The pipeline is closed before the lane, so none of its chunks are left in the lane
+        try (IngestionScheduler.Lane lane = ingestionScheduler.openLane(fileUpload.getBatchId(), fileUpload.getPriority());
+             IngestionPipeline pipeline = new IngestionPipeline(fileUpload.getBatchId(), pipelineQueueCapacity)
+                .stage("validate", validateThreads,
+                        chunk -> stageMetrics.time("ingest", "chunk.validate", () -> validateChunk(chunk, knownDigests)))
+                .stage("persist", lane,
+                        chunk -> stageMetrics.time("ingest", "chunk.persist", () -> persistChunk(chunk, fileUpload, shard, tracker)))
+                .stage("index", indexThreads,
+                        chunk -> stageMetrics.time("ingest", "index.update", () -> indexChunk(chunk)))
+                .start()) {
+            
+            if (layout.isRange()) {
+                readRanges(parser, layout, pipeline, tracker.current());
+                pipeline.finish();
+                return;
             }
             
-            // Validate header
-            validateHeader(header);
+            int totalRecords = tracker.current().getTotalRecords();
             
-            // Read and process data in chunks
-            List<String[]> chunk = new ArrayList<>(chunkSize);
-            String[] line;
-            int totalRecords = 0;
-            int processedRecords = 0;
-            int failedRecords = 0;
+            ContentChunker chunker = delta ? new ContentChunker(chunkSize, header) : null;
+            PackedRows chunk = new PackedRows(chunkSize);
+            // Parse time of a chunk excludes the time its submission waits for the pipeline
+            long parseStart = System.nanoTime();
             
-            while ((line = reader.readNext()) != null) {
+            while (parser.next()) {
                 totalRecords++;
-                chunk.add(line);
+                layout.appendTo(parser.row(), chunk);
                 
-                if (chunk.size() >= chunkSize) {
-                    int[] results = processChunk(chunk, batchId);
-                    processedRecords += results[0];
-                    failedRecords += results[1];
-                    chunk.clear();
-                    
-                    // Update progress
-                    updateProgress(fileUpload, totalRecords, processedRecords, failedRecords);
+                boolean boundary = chunker != null ? chunker.add(parser.rowBytes()) : chunk.size() >= chunkSize;
+                if (boundary) {
+                    stageMetrics.record("ingest", "chunk.parse", true, System.nanoTime() - parseStart);
+                    pipeline.submit(chunk, totalRecords, parser.getPosition(), chunker != null ? chunker.finish() : null);
+                    chunk = new PackedRows(chunkSize);
+                    parseStart = System.nanoTime();
                 }
             }
             
             // Process remaining records
-            if (!chunk.isEmpty()) {
-                int[] results = processChunk(chunk, batchId);
-                processedRecords += results[0];
-                failedRecords += results[1];
-                
-                // Update final progress
-                updateProgress(fileUpload, totalRecords, processedRecords, failedRecords);
+            if (chunk.size() > 0) {
+                stageMetrics.record("ingest", "chunk.parse", true, System.nanoTime() - parseStart);
+                pipeline.submit(chunk, totalRecords, parser.getPosition(), chunker != null ? chunker.finish() : null);
+            }
+            
+            pipeline.finish();
+        } finally {
+            applyCheckpoint(shard, tracker.current());
+        }
+    }
+
+    /**
+     * Saves a finished shard and recomputes the parent upload's counters and status from all of its
+     * shards, holding a row lock on the parent so shards finishing on different nodes do not race.
+     * Returns true when this was the last shard and the whole upload completed.
+     */
+    private boolean completeShard(FileUploadShard shard) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            FileUpload fileUpload = fileUploadRepository.findByIdWithLock(shard.getFileUploadId())
+                    .orElseThrow(() -> new FileProcessingException("File upload not found with id: " + shard.getFileUploadId()));
+            shardRepository.save(shard);
+            
+            List<FileUploadShard> shards = shardRepository.findByFileUploadIdOrderByShardIndex(fileUpload.getId());
+            ChunkResult totals = sumShards(shards);
+            fileUpload.setTotalRecords(shards.stream().mapToInt(s -> valueOrZero(s.getTotalRecords())).sum());
+            fileUpload.setProcessedRecords(totals.getProcessed());
+            fileUpload.setInsertedRecords(totals.getInserted());
+            fileUpload.setSkippedRecords(totals.getSkipped());
+            fileUpload.setFailedRecords(totals.getFailed());
+            fileUpload.setSkippedChunks(totals.getSkippedChunks());
+            fileUpload.setUpdatedRecords(totals.getUpdated());
+            
+            boolean allCompleted = shards.stream().allMatch(s -> s.getStatus() == FileUploadStatus.COMPLETED);
+            boolean anyRunning = shards.stream().anyMatch(s -> s.getStatus() == FileUploadStatus.PENDING
+                    || s.getStatus() == FileUploadStatus.PROCESSING);
+            
+            if (allCompleted) {
+                fileUpload.setStatus(FileUploadStatus.COMPLETED);
+            } else if (!anyRunning) {
+                fileUpload.setStatus(FileUploadStatus.FAILED);
+                fileUpload.setErrorMessage(shards.stream()
+                        .filter(s -> s.getStatus() == FileUploadStatus.FAILED)
+                        .map(s -> "Shard " + s.getShardIndex() + ": " + s.getErrorMessage())
+                        .collect(Collectors.joining("; ")));
             }
+            
+            fileUploadRepository.save(fileUpload);
+            return allCompleted;
+        }));
+    }
+
+    private static ChunkResult sumShards(List<FileUploadShard> shards) {
+        ChunkResult totals = new ChunkResult();
+        for (FileUploadShard shard : shards) {
+            totals.add(shardTotals(shard));
         }
+        return totals;
+    }
+
+    private static ChunkResult shardTotals(FileUploadShard shard) {
+        return new ChunkResult(
+                valueOrZero(shard.getInsertedRecords()),
+                valueOrZero(shard.getSkippedRecords()),
+                valueOrZero(shard.getFailedRecords()),
+                valueOrZero(shard.getSkippedChunks()),
+                valueOrZero(shard.getUpdatedRecords()));
     }
 
-    private void validateHeader(String[] header) {
-        // Validate that the header contains the required columns
-        boolean hasNumber = false;
-        boolean hasCountryCode = false;
+    /**
+     * Reads a file of number ranges. Ranges are cut into slices of at most {@code rangeChunkSize} numbers
+     * and a chunk is submitted whenever that many numbers have accumulated; records are counted as numbers.
+     * A chunk ending inside a range checkpoints at the start of that range along with the next number of
+     * the range, so a resume continues the range where the checkpoint left it without counting its first
+     * slices twice. Ranges that would take the file past {@link #MAX_RANGE_NUMBERS_PER_FILE} are rejected.
+     */
+    private void readRanges(CsvParser parser, ColumnLayout layout, IngestionPipeline pipeline,
+                            CheckpointTracker.Checkpoint start) throws IOException, InterruptedException {
+        List<NumberRange> ranges = new ArrayList<>();
+        long totalRecords = start.getTotalRecords();
+        Long resumeFrom = start.getRangeNext();
+        long pending = 0;
+        int rejected = 0;
         
-        for (String column : header) {
-            if ("number".equalsIgnoreCase(column)) {
-                hasNumber = true;
-            } else if ("countryCode".equalsIgnoreCase(column)) {
-                hasCountryCode = true;
+        while (parser.next()) {
+            NumberRange range = NumberRange.parse(layout.extractRange(parser.row()), MAX_RANGE_SIZE);
+            // The first row read on a resume is the range the checkpoint fell inside
+            long first = range != null && resumeFrom != null ? resumeFrom : range != null ? range.getFirst() : 0;
+            resumeFrom = null;
+            
+            if (range == null || totalRecords + range.getLast() - first + 1 > MAX_RANGE_NUMBERS_PER_FILE) {
+                totalRecords++;
+                rejected++;
+                continue;
+            }
+            
+            for (long from = first; from <= range.getLast(); from += rangeChunkSize) {
+                NumberRange slice = range.slice(from, Math.min(range.getLast(), from + rangeChunkSize - 1));
+                ranges.add(slice);
+                pending += slice.size();
+                totalRecords += slice.size();
+                
+                if (pending >= rangeChunkSize) {
+                    boolean rangeDone = slice.getLast() == range.getLast();
+                    pipeline.submitRanges(ranges, rejected, Math.toIntExact(totalRecords),
+                            rangeDone ? parser.getPosition() : parser.getRowOffset(),
+                            rangeDone ? null : slice.getLast() + 1);
+                    ranges = new ArrayList<>();
+                    pending = 0;
+                    rejected = 0;
+                }
             }
         }
         
-        if (!hasNumber || !hasCountryCode) {
-            throw new FileProcessingException("CSV file must contain 'number' and 'countryCode' columns");
+        if (!ranges.isEmpty() || rejected > 0) {
+            pipeline.submitRanges(ranges, rejected, Math.toIntExact(totalRecords), parser.getPosition(), null);
         }
     }
 
-    @Transactional
-    public int[] processChunk(List<String[]> chunk, String batchId) {
-        int processed = 0;
-        int failed = 0;
+    private void validateChunk(IngestionChunk chunk, Set<String> knownDigests) {
+        // Ranges are validated while they are read
+        if (chunk.getRanges() != null) {
+            return;
+        }
         
-        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        // Same content as a chunk loaded from an earlier upload of this file
+        if (chunk.getDigest() != null && knownDigests.contains(chunk.getDigest())) {
+            chunk.setUnchanged(true);
+            chunk.setRows(new PackedRows(0));
+            return;
+        }
         
-        // Split the chunk into smaller batches for parallel processing
-        int batchSize = Math.max(1, chunk.size() / maxThreads);
-        for (int i = 0; i < chunk.size(); i += batchSize) {
-            int end = Math.min(chunk.size(), i + batchSize);
-            List<String[]> batch = chunk.subList(i, end);
-            
-            CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    processBatch(batch, batchId);
-                    return true;
-                } catch (Exception e) {
-                    log.error("Error processing batch", e);
-                    return false;
+        // Checked straight from the chunk's bytes; numbers were normalized when the rows were read
+        PackedRows rows = chunk.getRows();
+        PackedRows.Field number = rows.field();
+        PackedRows.Field countryCode = rows.field();
+        for (int row = 0; row < rows.size(); row++) {
+            if (isBlank(number.of(row, PackedRows.NUMBER)) || isBlank(countryCode.of(row, PackedRows.COUNTRY_CODE))
+                    || !PhoneNumberValidator.isValidE164(number, countryCode)) {
+                rows.reject(row);
+            }
+        }
+        chunk.setRejected(rows.size() - rows.validCount());
+    }
+
+    /**
+     * Writes a chunk and commits the shard checkpoint in the same transaction, so a redelivered shard
+     * resumes after chunks that made it to the database. Chunks are written by several threads, so the
+     * checkpoint only covers the chunks committed without gaps before this one; chunks committed past
+     * a gap are written again on resume and then counted as skipped.
+     * The checkpoint row is only written once per checkpoint interval; live progress is published from
+     * memory after every chunk.
+     */
+    private void persistChunk(IngestionChunk chunk, FileUpload fileUpload, FileUploadShard shard, CheckpointTracker tracker) {
+        List<TelephoneNumber> inserted = new ArrayList<>();
+        List<NumberUpdate> updated = new ArrayList<>();
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (chunk.isUnchanged()) {
+                    chunk.setResult(ChunkResult.unchanged(chunk.getSize()));
+                } else {
+                    ChunkResult result = writeChunk(chunk, fileUpload.getBatchId(), inserted, updated);
+                    chunk.setResult(result.plus(ChunkResult.failed(chunk.getRejected())));
+                    
+                    // Remember the chunk only once its rows are committed
+                    if (chunk.getDigest() != null) {
+                        chunkDigestRepository.saveDigest(fileUpload.getOriginalFileName(), fileUpload.getUploadedBy(),
+                                chunk.getDigest(), fileUpload.getId());
+                    }
                 }
-            }, executorService);
-            
-            futures.add(future);
+                if (tracker.claimSave(System.currentTimeMillis(), checkpointInterval.toMillis())) {
+                    saveCheckpoint(shard, tracker.preview(chunk));
+                }
+            });
+            chunk.setInserted(inserted);
+            chunk.setUpdated(updated);
+        } catch (Exception e) {
+            log.error("Error processing chunk ending at offset {}", chunk.getOffset(), e);
+            chunk.setResult(ChunkResult.failed(chunk.getSize()));
+            if (tracker.claimSave(System.currentTimeMillis(), checkpointInterval.toMillis())) {
+                transactionTemplate.executeWithoutResult(status -> saveCheckpoint(shard, tracker.preview(chunk)));
+            }
         }
         
-        // Wait for all futures to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        CheckpointTracker.Checkpoint checkpoint = tracker.complete(chunk);
+        progressBroadcaster.update(fileUpload.getBatchId(), shard.getShardIndex(),
+                checkpoint.getTotalRecords(), checkpoint.getTotals());
+    }
+
+    private void indexChunk(IngestionChunk chunk) {
+        // Index only the rows that were actually committed
+        if (!chunk.getInserted().isEmpty()) {
+            searchIndexService.indexTelephoneNumbers(chunk.getInserted());
+            availabilityIndex.addAll(chunk.getInserted());
+            numberPrefixIndex.addAll(chunk.getInserted());
+        }
         
-        // Count successes and failures
-        for (CompletableFuture<Boolean> future : futures) {
-            if (future.join()) {
-                processed += batchSize;
-            } else {
-                failed += batchSize;
+        // Changed numbers may move to other buckets of the in-memory indexes
+        if (!chunk.getUpdated().isEmpty()) {
+            List<TelephoneNumber> numbers = new ArrayList<>(chunk.getUpdated().size());
+            for (NumberUpdate update : chunk.getUpdated()) {
+                numbers.add(update.getTelephoneNumber());
+                availabilityIndex.updateAttributes(update.getTelephoneNumber(), update.getPreviousAreaCode(),
+                        update.getPreviousNumberType());
+                numberPrefixIndex.updateAttributes(update.getTelephoneNumber(), update.getPreviousAreaCode(),
+                        update.getPreviousNumberType());
             }
+            searchIndexService.indexTelephoneNumbers(numbers);
+        }
+    }
+
+    private ChunkResult writeChunk(IngestionChunk chunk, String batchId, List<TelephoneNumber> inserted,
+                                   List<NumberUpdate> updated) {
+        // Only chunks of a resent file that differ from what was loaded before carry changes
+        boolean applyChanges = chunk.getDigest() != null;
+        BulkLoadResult result;
+        if (chunk.getRanges() != null) {
+            // Ranges are always expanded by the database, whatever the ingestion mode
+            result = chunk.getRanges().isEmpty() ? null : bulkLoader.loadRanges(chunk.getRanges(), batchId);
+        } else if (chunk.getRows().validCount() == 0) {
+            result = null;
+        } else if (ingestionMode == IngestionMode.COPY) {
+            result = bulkLoader.load(chunk.getRows(), batchId, applyChanges);
+        } else {
+            // Entities need Strings anyway
+            return processBatch(chunk.getRows().toList(), batchId, applyChanges, inserted, updated);
+        }
+        
+        if (result == null) {
+            return new ChunkResult();
         }
         
-        return new int[]{processed, failed};
+        inserted.addAll(result.getInserted());
+        updated.addAll(result.getUpdated());
+        int insertedCount = result.getInserted().size();
+        int updatedCount = result.getUpdated().size();
+        return new ChunkResult(insertedCount, result.getStaged() - insertedCount - updatedCount, result.getRejected(),
+                0, updatedCount);
     }
 
+    /**
+     * Inserts the rows whose number does not exist yet. With {@code applyChanges}, existing available
+     * numbers whose attributes differ from their row are updated; other existing numbers are skipped.
+     */
     @Transactional
-    public void processBatch(List<String[]> batch, String batchId) {
-        List<TelephoneNumber> numbers = new ArrayList<>();
+    public ChunkResult processBatch(List<String[]> batch, String batchId, boolean applyChanges,
+                                    List<TelephoneNumber> inserted, List<NumberUpdate> updated) {
+        // Collapse duplicates within the batch, keeping the first occurrence
+        Map<String, String[]> candidates = new LinkedHashMap<>();
+        int skipped = 0;
+        int failed = 0;
         
         for (String[] line : batch) {
-            try {
-                String number = line[0];
-                String countryCode = line[1];
-                
-                // Skip if the number already exists
-                if (telephoneNumberRepository.existsByNumber(number)) {
+            if (!isValidRow(line)) {
+                failed++;
+            } else if (candidates.putIfAbsent(line[0], line) != null) {
+                skipped++;
+            }
+        }
+        
+        if (candidates.isEmpty()) {
+            return new ChunkResult(0, skipped, failed);
+        }
+        
+        // Check the whole batch against the table in a single query
+        List<TelephoneNumber> changed = new ArrayList<>();
+        List<NumberUpdate> changes = new ArrayList<>();
+        if (applyChanges) {
+            for (TelephoneNumber existing : telephoneNumberRepository.findByNumberIn(candidates.keySet())) {
+                String[] line = candidates.remove(existing.getNumber());
+                if (line == null) {
                     continue;
                 }
-                
-                TelephoneNumber telephoneNumber = TelephoneNumber.builder()
-                        .number(number)
-                        .countryCode(countryCode)
-                        .areaCode(line.length > 2 ? line[2] : null)
-                        .numberType(line.length > 3 ? line[3] : null)
-                        .category(line.length > 4 ? line[4] : null)
-                        .features(line.length > 5 ? line[5] : null)
-                        .status(NumberStatus.AVAILABLE)
-                        .batchId(batchId)
-                        .build();
-                
-                numbers.add(telephoneNumber);
-            } catch (Exception e) {
-                log.error("Error processing line", e);
+                NumberUpdate change = applyRow(existing, line);
+                if (change != null) {
+                    changed.add(existing);
+                    changes.add(change);
+                } else {
+                    skipped++;
+                }
+            }
+        } else {
+            List<String> existingNumbers = telephoneNumberRepository.findExistingNumbers(candidates.keySet());
+            for (String existing : existingNumbers) {
+                if (candidates.remove(existing) != null) {
+                    skipped++;
+                }
             }
         }
         
-        // Save all numbers in a batch
-        if (!numbers.isEmpty()) {
-            List<TelephoneNumber> savedNumbers = telephoneNumberRepository.saveAll(numbers);
+        List<TelephoneNumber> numbers = new ArrayList<>(candidates.size());
+        for (String[] line : candidates.values()) {
+            TelephoneNumber telephoneNumber = TelephoneNumber.builder()
+                    .number(line[0])
+                    .countryCode(line[1])
+                    .areaCode(valueAt(line, 2))
+                    .numberType(valueAt(line, 3))
+                    .category(valueAt(line, 4))
+                    .features(valueAt(line, 5))
+                    .status(NumberStatus.AVAILABLE)
+                    .batchId(batchId)
+                    .build();
             
-            // Index the saved numbers in Elasticsearch
-            searchIndexService.indexTelephoneNumbers(savedNumbers);
+            numbers.add(telephoneNumber);
         }
+        
+        // Save all numbers in a batch; the caller indexes them once the transaction commits
+        if (!numbers.isEmpty()) {
+            inserted.addAll(telephoneNumberRepository.saveAll(numbers));
+        }
+        if (!changed.isEmpty()) {
+            telephoneNumberRepository.saveAll(changed);
+            updated.addAll(changes);
+        }
+        
+        return new ChunkResult(numbers.size(), skipped, failed, 0, changed.size());
+    }
+
+    // Copies a row's attributes onto an available number, returning null if it is allocated or nothing changed
+    private static NumberUpdate applyRow(TelephoneNumber existing, String[] line) {
+        if (existing.getStatus() != NumberStatus.AVAILABLE
+                || (Objects.equals(existing.getAreaCode(), valueAt(line, 2))
+                && Objects.equals(existing.getNumberType(), valueAt(line, 3))
+                && Objects.equals(existing.getCategory(), valueAt(line, 4))
+                && Objects.equals(existing.getFeatures(), valueAt(line, 5)))) {
+            return null;
+        }
+        
+        NumberUpdate change = new NumberUpdate(existing, existing.getAreaCode(), existing.getNumberType());
+        existing.setAreaCode(valueAt(line, 2));
+        existing.setNumberType(valueAt(line, 3));
+        existing.setCategory(valueAt(line, 4));
+        existing.setFeatures(valueAt(line, 5));
+        return change;
+    }
+
+    private static String valueAt(String[] line, int index) {
+        return line.length > index ? line[index] : null;
+    }
+
+    // Normalizes the number in place and checks it against the row's country code
+    private static boolean isValidRow(String[] line) {
+        if (line.length < 2 || isBlank(line[0]) || isBlank(line[1])) {
+            return false;
+        }
+        line[0] = PhoneNumberValidator.normalizePhoneNumber(line[0]);
+        return PhoneNumberValidator.isValidE164(line[0], line[1]);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
     }
 
-    private void updateProgress(FileUpload fileUpload, int totalRecords, int processedRecords, int failedRecords) {
-        fileUpload.setTotalRecords(totalRecords);
-        fileUpload.setProcessedRecords(processedRecords);
-        fileUpload.setFailedRecords(failedRecords);
-        fileUploadRepository.save(fileUpload);
+    private void saveCheckpoint(FileUploadShard shard, CheckpointTracker.Checkpoint checkpoint) {
+        ChunkResult totals = checkpoint.getTotals();
+        shardRepository.updateCheckpoint(shard.getId(), checkpoint.getTotalRecords(), (long) checkpoint.getTotalRecords(),
+                checkpoint.getOffset(), checkpoint.getRangeNext(), totals.getInserted(), totals.getSkipped(), totals.getFailed(),
+                totals.getSkippedChunks(), totals.getUpdated());
+    }
+
+    private static void applyCheckpoint(FileUploadShard shard, CheckpointTracker.Checkpoint checkpoint) {
+        ChunkResult totals = checkpoint.getTotals();
+        shard.setTotalRecords(checkpoint.getTotalRecords());
+        shard.setInsertedRecords(totals.getInserted());
+        shard.setSkippedRecords(totals.getSkipped());
+        shard.setFailedRecords(totals.getFailed());
+        shard.setSkippedChunks(totals.getSkippedChunks());
+        shard.setUpdatedRecords(totals.getUpdated());
+        shard.setCheckpointOffset(checkpoint.getOffset());
+        shard.setCheckpointRangeNext(checkpoint.getRangeNext());
+        shard.setCheckpointRow((long) checkpoint.getTotalRecords());
     }
 
     public FileUploadDTO getFileUploadStatus(String batchId) {
         FileUpload fileUpload = fileUploadRepository.findByBatchId(batchId)
                 .orElseThrow(() -> new FileProcessingException("File upload not found for batch ID: " + batchId));
         
-        return mapToDTO(fileUpload);
+        FileUploadDTO result = mapToDTO(fileUpload);
+        
+        // Parent counters are rolled up when a shard finishes; report live totals while shards are running
+        if (fileUpload.getStatus() == FileUploadStatus.PROCESSING) {
+            List<FileUploadShard> shards = shardRepository.findByFileUploadIdOrderByShardIndex(fileUpload.getId());
+            ChunkResult totals = sumShards(shards);
+            result.setTotalRecords(shards.stream().mapToInt(s -> valueOrZero(s.getTotalRecords())).sum());
+            result.setProcessedRecords(totals.getProcessed());
+            result.setInsertedRecords(totals.getInserted());
+            result.setSkippedRecords(totals.getSkipped());
+            result.setFailedRecords(totals.getFailed());
+            result.setSkippedChunks(totals.getSkippedChunks());
+            result.setUpdatedRecords(totals.getUpdated());
+        }
+        
+        return result;
+    }
+
+    /**
+     * Subscribes to progress events of an upload. The current state is sent right away, then a new event
+     * whenever the counters change, until the upload completes or fails.
+     */
+    public SseEmitter streamProgress(String batchId) {
+        FileUploadDTO current = getFileUploadStatus(batchId);
+        return progressBroadcaster.subscribe(batchId, current, sseTimeout.toMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${app.file-processing.progress.push-interval-ms:1000}")
+    public void publishProgress() {
+        long now = System.currentTimeMillis();
+        for (String batchId : progressBroadcaster.watchedBatches()) {
+            try {
+                // Shards running on other nodes are only visible through the database
+                if (progressBroadcaster.needsRefresh(batchId, now, progressRefreshInterval.toMillis())) {
+                    refreshProgress(batchId, now);
+                }
+                
+                FileUploadDTO snapshot = progressBroadcaster.snapshot(batchId);
+                if (snapshot != null) {
+                    progressBroadcaster.publish(batchId, snapshot);
+                }
+            } catch (Exception e) {
+                log.warn("Could not publish progress of batch ID {}", batchId, e);
+            }
+        }
+    }
+
+    private void refreshProgress(String batchId, long now) {
+        FileUpload fileUpload = fileUploadRepository.findByBatchId(batchId)
+                .orElseThrow(() -> new FileProcessingException("File upload not found for batch ID: " + batchId));
+        
+        Map<Integer, UploadProgressBroadcaster.ShardProgress> shards = new HashMap<>();
+        if (fileUpload.getStatus() == FileUploadStatus.PROCESSING) {
+            for (FileUploadShard shard : shardRepository.findByFileUploadIdOrderByShardIndex(fileUpload.getId())) {
+                shards.put(shard.getShardIndex(), new UploadProgressBroadcaster.ShardProgress(
+                        valueOrZero(shard.getTotalRecords()), shardTotals(shard)));
+            }
+        }
+        
+        progressBroadcaster.refresh(batchId, mapToDTO(fileUpload), shards, now);
     }
 
     public List<FileUploadDTO> getAllFileUploads() {
@@ -301,11 +919,17 @@ public class FileProcessingService {
                 .originalFileName(fileUpload.getOriginalFileName())
                 .fileSize(fileUpload.getFileSize())
                 .contentType(fileUpload.getContentType())
+                .compression(fileUpload.getCompression())
+                .priority(fileUpload.getPriority())
                 .batchId(fileUpload.getBatchId())
                 .status(fileUpload.getStatus())
                 .totalRecords(fileUpload.getTotalRecords())
                 .processedRecords(fileUpload.getProcessedRecords())
+                .insertedRecords(fileUpload.getInsertedRecords())
+                .skippedRecords(fileUpload.getSkippedRecords())
                 .failedRecords(fileUpload.getFailedRecords())
+                .skippedChunks(fileUpload.getSkippedChunks())
+                .updatedRecords(fileUpload.getUpdatedRecords())
                 .errorMessage(fileUpload.getErrorMessage())
                 .uploadedBy(fileUpload.getUploadedBy())
                 .createdAt(fileUpload.getCreatedAt())
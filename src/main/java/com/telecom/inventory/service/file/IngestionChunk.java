@@ -0,0 +1,68 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.service.file.parser.PackedRows;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chunk of parsed rows or ranges travelling through the {@link IngestionPipeline}. Each stage fills in its part:
+ * validation rejects invalid rows, the database writer records the outcome and the numbers it inserted or updated.
+ */
+@Getter
+@Setter
+public class IngestionChunk {
+
+    // Position of the chunk in the input, used to track checkpoints when chunks complete out of order
+    private final long sequence;
+
+    // Numbers read from the input, before validation
+    private final int size;
+
+    // Row number and byte offset just after the last row of the chunk
+    private final int totalRecords;
+    private final long offset;
+
+    // Validation rejects rows in place
+    private PackedRows rows;
+
+    // Set instead of rows for files listing number ranges
+    private final List<NumberRange> ranges;
+
+    // Next number of the range at offset when the chunk ends inside that range
+    private Long rangeNext;
+
+    // SHA-256 of the chunk's rows when delta ingestion is on; set to unchanged if an earlier upload loaded it
+    private String digest;
+    private boolean unchanged;
+
+    private int rejected;
+    private ChunkResult result;
+    private List<TelephoneNumber> inserted = Collections.emptyList();
+    private List<NumberUpdate> updated = Collections.emptyList();
+
+    public IngestionChunk(long sequence, PackedRows rows, int totalRecords, long offset) {
+        this.sequence = sequence;
+        this.size = rows != null ? rows.size() : 0;
+        this.totalRecords = totalRecords;
+        this.offset = offset;
+        this.rows = rows;
+        this.ranges = null;
+    }
+
+    /**
+     * Creates a chunk of ranges; {@code rejected} rows were already found to be invalid while reading.
+     */
+    public IngestionChunk(long sequence, List<NumberRange> ranges, int rejected, int totalRecords, long offset) {
+        this.sequence = sequence;
+        this.size = (int) ranges.stream().mapToLong(NumberRange::size).sum() + rejected;
+        this.totalRecords = totalRecords;
+        this.offset = offset;
+        this.rows = null;
+        this.ranges = ranges;
+        this.rejected = rejected;
+    }
+}
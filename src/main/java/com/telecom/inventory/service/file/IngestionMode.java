@@ -0,0 +1,6 @@
+package com.telecom.inventory.service.file;
+
+public enum IngestionMode {
+    JPA,
+    COPY
+}
@@ -0,0 +1,361 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.exception.FileProcessingException;
+import com.telecom.inventory.service.file.parser.PackedRows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged ingestion: the caller parses rows and {@link #submit submits} chunks, which then pass through
+ * each {@link #stage stage} in turn. Every stage runs on its own pool of threads and hands chunks to the
+ * next one through a bounded queue, so reading, validating, writing and indexing overlap. When a stage
+ * falls behind its input queue fills up and the stages before it block, down to the reader, so the
+ * slowest stage sets the pace without chunks piling up in memory.
+ * Chunks are not kept in order once a stage has more than one thread.
+ * A stage can instead hand its chunks to a shared {@link StageExecutor}, such as a lane of the
+ * {@link IngestionScheduler}, so its work is budgeted across pipelines rather than by its own threads.
+ * Such tasks never wait for the next stage, which would hold a worker shared with other pipelines: a
+ * chunk is only dispatched once a slot ahead of the next stage is reserved for it, and a thread of the
+ * pipeline forwards finished chunks into the next stage's queue.
+ */
+@Slf4j
+public class IngestionPipeline implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Stage {
+        void process(IngestionChunk chunk);
+    }
+
+    @FunctionalInterface
+    public interface StageExecutor {
+        /**
+         * Runs the task eventually, blocking the caller while the executor cannot take more work.
+         */
+        void execute(Runnable task) throws InterruptedException;
+    }
+
+    private static final IngestionChunk END = new IngestionChunk(-1, null, 0, 0);
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+    private final int queueCapacity;
+    private final List<StageWorkers> stages = new ArrayList<>();
+    private final List<Future<?>> workers = new ArrayList<>();
+    private ExecutorService executor;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private long nextSequence;
+
+    public IngestionPipeline(String name, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Appends a stage run by {@code threads} workers. Stages are applied in the order they are added.
+     */
+    public IngestionPipeline stage(String stageName, int threads, Stage stage) {
+        stages.add(new StageWorkers(stageName, Math.max(1, threads), stage, null, new ArrayBlockingQueue<>(queueCapacity)));
+        return this;
+    }
+
+    /**
+     * Appends a stage whose chunks are processed by tasks handed to {@code executor}. One thread of the
+     * pipeline dispatches them and another forwards them to the next stage; the executor decides when
+     * and on which thread they run.
+     */
+    public IngestionPipeline stage(String stageName, StageExecutor executor, Stage stage) {
+        stages.add(new StageWorkers(stageName, 2, stage, executor, new ArrayBlockingQueue<>(queueCapacity)));
+        return this;
+    }
+
+    public IngestionPipeline start() {
+        int threads = stages.stream().mapToInt(s -> s.threads).sum();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "ingest-" + name + "-" + threadNumber.incrementAndGet()));
+        
+        for (int i = 0; i < stages.size(); i++) {
+            StageWorkers stage = stages.get(i);
+            BlockingQueue<IngestionChunk> next = i + 1 < stages.size() ? stages.get(i + 1).queue : null;
+            if (stage.executor != null) {
+                workers.add(executor.submit(() -> dispatch(stage)));
+                workers.add(executor.submit(() -> forward(stage, next)));
+                continue;
+            }
+            for (int t = 0; t < stage.threads; t++) {
+                workers.add(executor.submit(() -> run(stage, next)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Hands a chunk to the first stage, blocking while its queue is full.
+     */
+    public void submit(PackedRows rows, int totalRecords, long offset, String digest) throws InterruptedException {
+        IngestionChunk chunk = new IngestionChunk(nextSequence++, rows, totalRecords, offset);
+        chunk.setDigest(digest);
+        put(stages.get(0).queue, chunk);
+    }
+
+    /**
+     * Hands a chunk of number ranges to the first stage, blocking while its queue is full. When the chunk
+     * ends inside a range, {@code offset} is the start of that range and {@code rangeNext} its next number.
+     */
+    public void submitRanges(List<NumberRange> ranges, int rejected, int totalRecords, long offset, Long rangeNext)
+            throws InterruptedException {
+        IngestionChunk chunk = new IngestionChunk(nextSequence++, ranges, rejected, totalRecords, offset);
+        chunk.setRangeNext(rangeNext);
+        put(stages.get(0).queue, chunk);
+    }
+
+    /**
+     * Waits until every submitted chunk has left the last stage and rethrows a stage failure, if any.
+     */
+    public void finish() throws InterruptedException {
+        put(stages.get(0).queue, END);
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            }
+        }
+        if (failure != null) {
+            throw new FileProcessingException("Ingestion failed: " + failure.getMessage());
+        }
+    }
+
+    private void run(StageWorkers stage, BlockingQueue<IngestionChunk> next) {
+        try {
+            while (true) {
+                IngestionChunk chunk = take(stage.queue);
+                if (chunk == null) {
+                    // Another stage failed
+                    return;
+                }
+                
+                if (chunk == END) {
+                    // Let the other workers of this stage see the end too; the last one passes it on
+                    put(stage.queue, END);
+                    if (stage.running.decrementAndGet() == 0 && next != null) {
+                        put(next, END);
+                    }
+                    return;
+                }
+                
+                stage.stage.process(chunk);
+                if (next != null) {
+                    put(next, chunk);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Pipeline closed before the end of the input was reached
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Ingestion stage {} failed", stage.name, e);
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void dispatch(StageWorkers stage) {
+        try {
+            while (true) {
+                IngestionChunk chunk = take(stage.queue);
+                if (chunk == null) {
+                    return;
+                }
+                
+                if (chunk == END) {
+                    // Everything dispatched must have left the stage before the end is passed on
+                    if (awaitIdle(stage)) {
+                        stage.done.add(END);
+                    }
+                    return;
+                }
+                
+                // Bounds the chunks between this stage and the next, so finished tasks never have to wait
+                if (!acquire(stage.slots)) {
+                    return;
+                }
+                synchronized (stage.idle) {
+                    stage.inFlight++;
+                }
+                stage.executor.execute(() -> runTask(stage, chunk));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Ingestion stage {} failed", stage.name, e);
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void runTask(StageWorkers stage, IngestionChunk chunk) {
+        boolean processed = false;
+        try {
+            // Tasks still queued when the pipeline fails or closes are dropped
+            if (failure == null && !closed) {
+                stage.stage.process(chunk);
+                processed = true;
+            }
+        } catch (RuntimeException e) {
+            log.error("Ingestion stage {} failed", stage.name, e);
+            if (failure == null) {
+                failure = e;
+            }
+        } finally {
+            if (processed) {
+                stage.done.add(chunk);
+            } else {
+                stage.slots.release();
+            }
+            synchronized (stage.idle) {
+                stage.inFlight--;
+                stage.idle.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Moves the chunks finished by the executor into the next stage, waiting there on a pipeline thread.
+     */
+    private void forward(StageWorkers stage, BlockingQueue<IngestionChunk> next) {
+        try {
+            while (true) {
+                IngestionChunk chunk = take(stage.done);
+                if (chunk == null) {
+                    return;
+                }
+                
+                if (next != null) {
+                    put(next, chunk);
+                }
+                if (chunk == END) {
+                    return;
+                }
+                stage.slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Ingestion stage {} failed", stage.name, e);
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Waits until no dispatched task of the stage is pending. Returns false if the pipeline failed first.
+     */
+    private boolean awaitIdle(StageWorkers stage) throws InterruptedException {
+        synchronized (stage.idle) {
+            while (stage.inFlight > 0) {
+                if (failure != null) {
+                    return false;
+                }
+                stage.idle.wait(POLL_MILLIS);
+            }
+        }
+        return failure == null;
+    }
+
+    private IngestionChunk take(BlockingQueue<IngestionChunk> queue) throws InterruptedException {
+        IngestionChunk chunk;
+        while ((chunk = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            if (failure != null) {
+                return null;
+            }
+        }
+        return chunk;
+    }
+
+    private boolean acquire(Semaphore slots) throws InterruptedException {
+        while (!slots.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(BlockingQueue<IngestionChunk> queue, IngestionChunk chunk) throws InterruptedException {
+        while (!queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure != null) {
+                throw new FileProcessingException("Ingestion failed: " + failure.getMessage());
+            }
+            if (closed) {
+                throw new FileProcessingException("Ingestion pipeline " + name + " is closed");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        closed = true;
+        executor.shutdownNow();
+        // Let in-flight chunks settle so their checkpoints are not overwritten afterwards
+        boolean stopped = executor.awaitTermination(30, TimeUnit.SECONDS);
+        for (StageWorkers stage : stages) {
+            if (stage.executor != null) {
+                synchronized (stage.idle) {
+                    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+                    while (stage.inFlight > 0 && System.currentTimeMillis() < deadline) {
+                        stage.idle.wait(POLL_MILLIS);
+                    }
+                    stopped &= stage.inFlight == 0;
+                }
+            }
+        }
+        if (!stopped) {
+            log.warn("Ingestion pipeline {} did not stop in time", name);
+        }
+    }
+
+    private static final class StageWorkers {
+        private final String name;
+        private final int threads;
+        private final Stage stage;
+        private final StageExecutor executor;
+        private final BlockingQueue<IngestionChunk> queue;
+        private final AtomicInteger running;
+        // Tasks handed to the executor that have not finished yet
+        private final Object idle = new Object();
+        private int inFlight;
+        // Chunks dispatched to the executor and not yet passed to the next stage, and those finished so far
+        private final Semaphore slots;
+        private final BlockingQueue<IngestionChunk> done = new LinkedBlockingQueue<>();
+
+        private StageWorkers(String name, int threads, Stage stage, StageExecutor executor,
+                             BlockingQueue<IngestionChunk> queue) {
+            this.name = name;
+            this.threads = threads;
+            this.stage = stage;
+            this.executor = executor;
+            this.queue = queue;
+            this.running = new AtomicInteger(threads);
+            this.slots = new Semaphore(queue.remainingCapacity());
+        }
+    }
+}
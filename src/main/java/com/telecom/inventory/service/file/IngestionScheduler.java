@@ -0,0 +1,243 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.dto.IngestionSchedulerStatusDTO;
+import com.telecom.inventory.model.IngestionPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the database writes of every upload on this node on one fixed set of workers, which is also the
+ * number of connections ingestion can hold at once. Each running upload gets a lane with a bounded queue
+ * of chunks. Workers serve priorities by weight (see {@link IngestionPriority}) and the lanes of one
+ * priority round-robin, so every upload progresses at its share and no single file takes the whole pool.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionScheduler {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.file-processing.scheduler.workers:4}")
+    private int workerCount;
+
+    @Value("${app.file-processing.pipeline.queue-capacity:4}")
+    private int laneCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final Map<IngestionPriority, Deque<Lane>> ready = new EnumMap<>(IngestionPriority.class);
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private IngestionPriority[] cycle;
+    private int cursor;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        // Weighted cycle of priorities, interleaved so lower priorities are not served in bursts
+        List<IngestionPriority> order = new ArrayList<>();
+        int maxWeight = 0;
+        for (IngestionPriority priority : IngestionPriority.values()) {
+            ready.put(priority, new ArrayDeque<>());
+            maxWeight = Math.max(maxWeight, priority.getWeight());
+        }
+        for (int round = 0; round < maxWeight; round++) {
+            for (IngestionPriority priority : IngestionPriority.values()) {
+                if (round < priority.getWeight()) {
+                    order.add(priority);
+                }
+            }
+        }
+        cycle = order.toArray(new IngestionPriority[0]);
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount,
+                runnable -> new Thread(runnable, "ingest-scheduler-" + threadNumber.incrementAndGet()));
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+        
+        for (IngestionPriority priority : IngestionPriority.values()) {
+            Gauge.builder("ingestion.scheduler.queue.depth", this, scheduler -> scheduler.queueDepth(priority))
+                    .description("Chunks waiting for an ingestion worker")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ingestion.scheduler.busy.workers", busyWorkers, AtomicInteger::get)
+                .description("Ingestion workers currently writing a chunk")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdownNow();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens the lane of an upload, shared by all of its shards running on this node. Close it once the
+     * shard's pipeline has finished.
+     */
+    public Lane openLane(String batchId, IngestionPriority priority) {
+        lock.lock();
+        try {
+            Lane lane = lanes.computeIfAbsent(batchId, id -> new Lane(id, priority != null ? priority : IngestionPriority.NORMAL));
+            lane.users++;
+            return lane;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public IngestionSchedulerStatusDTO getStatus() {
+        lock.lock();
+        try {
+            Map<IngestionPriority, Integer> queued = new EnumMap<>(IngestionPriority.class);
+            for (IngestionPriority priority : IngestionPriority.values()) {
+                queued.put(priority, queueDepth(priority));
+            }
+            return IngestionSchedulerStatusDTO.builder()
+                    .workers(workerCount)
+                    .busyWorkers(busyWorkers.get())
+                    .activeUploads(lanes.size())
+                    .queuedChunks(queued)
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int queueDepth(IngestionPriority priority) {
+        lock.lock();
+        try {
+            int depth = 0;
+            for (Lane lane : lanes.values()) {
+                if (lane.priority == priority) {
+                    depth += lane.tasks.size();
+                }
+            }
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task;
+            lock.lock();
+            try {
+                Lane lane;
+                while ((lane = nextLane()) == null) {
+                    workAvailable.await();
+                }
+                task = lane.tasks.poll();
+                if (lane.tasks.isEmpty()) {
+                    lane.ready = false;
+                } else {
+                    // Back of the line, behind the other lanes of its priority
+                    ready.get(lane.priority).addLast(lane);
+                }
+                lane.notFull.signal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            
+            busyWorkers.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Ingestion task failed", e);
+            } finally {
+                busyWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private Lane nextLane() {
+        for (int i = 0; i < cycle.length; i++) {
+            int index = (cursor + i) % cycle.length;
+            Lane lane = ready.get(cycle[index]).pollFirst();
+            if (lane != null) {
+                cursor = (index + 1) % cycle.length;
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queue of one upload's pending database writes.
+     */
+    public final class Lane implements IngestionPipeline.StageExecutor, AutoCloseable {
+
+        private final String batchId;
+        private final IngestionPriority priority;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private final Condition notFull = lock.newCondition();
+        private boolean ready;
+        private int users;
+
+        private Lane(String batchId, IngestionPriority priority) {
+            this.batchId = batchId;
+            this.priority = priority;
+        }
+
+        /**
+         * Queues a task, blocking while the lane already holds as many tasks as its capacity.
+         */
+        @Override
+        public void execute(Runnable task) throws InterruptedException {
+            lock.lock();
+            try {
+                while (tasks.size() >= laneCapacity) {
+                    notFull.await();
+                }
+                tasks.addLast(task);
+                if (!ready) {
+                    ready = true;
+                    IngestionScheduler.this.ready.get(priority).addLast(this);
+                }
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (--users == 0) {
+                    lanes.remove(batchId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
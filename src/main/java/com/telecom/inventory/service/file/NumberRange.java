@@ -0,0 +1,80 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.util.PhoneNumberValidator;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A contiguous block of numbers such as +12025550000 to +12025559999, kept as the numeric value of its
+ * digits so it can be expanded by the database instead of being written out one number at a time.
+ * Expanded numbers are written in E.164, '+' followed by {@code digits} digits.
+ */
+@Getter
+@AllArgsConstructor
+public class NumberRange {
+
+    // Limits from V1__initial_schema.sql for the country code, area code, number type and category
+    private static final int[] MAX_LENGTHS = {5, 10, 50, 50};
+
+    private final long first;
+    private final long last;
+    private final int digits;
+    private final String countryCode;
+    private final String areaCode;
+    private final String numberType;
+    private final String category;
+    private final String features;
+
+    /**
+     * Parses a row in the order start, end, countryCode, areaCode, numberType, category, features.
+     * Both ends are normalized to E.164 like the numbers of a row file, and must be valid numbers of
+     * the row's country code with the same number of digits. Returns null when the row is not a valid
+     * range, including when the start is after the end.
+     */
+    public static NumberRange parse(String[] row, long maxSize) {
+        if (row[0] == null || row[1] == null || row[2] == null) {
+            return null;
+        }
+        
+        String start = PhoneNumberValidator.normalizePhoneNumber(row[0]);
+        String end = PhoneNumberValidator.normalizePhoneNumber(row[1]);
+        if (start.length() != end.length()
+                || !PhoneNumberValidator.isValidE164(start, row[2]) || !PhoneNumberValidator.isValidE164(end, row[2])) {
+            return null;
+        }
+        
+        long first = parseDigits(start, 1);
+        long last = parseDigits(end, 1);
+        if (last < first || last - first >= maxSize) {
+            return null;
+        }
+        
+        for (int i = 0; i < MAX_LENGTHS.length; i++) {
+            if (row[i + 2] != null && row[i + 2].length() > MAX_LENGTHS[i]) {
+                return null;
+            }
+        }
+        
+        return new NumberRange(first, last, start.length() - 1, row[2], row[3], row[4], row[5], row[6]);
+    }
+
+    // Only called on validated numbers, which are all digits after the '+'
+    private static long parseDigits(String value, int from) {
+        long result = 0;
+        for (int i = from; i < value.length(); i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    public long size() {
+        return last - first + 1;
+    }
+
+    /**
+     * Returns the part of this range from {@code from} to {@code to}, both inclusive.
+     */
+    public NumberRange slice(long from, long to) {
+        return new NumberRange(from, to, digits, countryCode, areaCode, numberType, category, features);
+    }
+}
@@ -0,0 +1,20 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.TelephoneNumber;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An existing number whose attributes were changed by a resent file, with the attributes the in-memory
+ * indexes filed it under before the change.
+ */
+@Getter
+@AllArgsConstructor
+public class NumberUpdate {
+
+    private final TelephoneNumber telephoneNumber;
+
+    private final String previousAreaCode;
+
+    private final String previousNumberType;
+}
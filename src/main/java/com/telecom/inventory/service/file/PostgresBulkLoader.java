@@ -0,0 +1,282 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.service.file.parser.PackedRows;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads telephone numbers through the PostgreSQL COPY protocol instead of one INSERT per entity.
+ * Rows are streamed into a session-local staging table and merged into {@code telephone_numbers}
+ * with a single INSERT ... SELECT, which also drops numbers that already exist. Chunks of a resent file
+ * first update the available numbers whose attributes changed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresBulkLoader {
+
+    private static final String CREATE_STAGING_TABLE =
+            "CREATE TEMP TABLE IF NOT EXISTS telephone_numbers_staging (" +
+            "number VARCHAR(20), country_code VARCHAR(5), area_code VARCHAR(10), " +
+            "number_type VARCHAR(50), category VARCHAR(50), features TEXT) " +
+            "ON COMMIT DELETE ROWS";
+
+    private static final String COPY_INTO_STAGING =
+            "COPY telephone_numbers_staging (number, country_code, area_code, number_type, category, features) " +
+            "FROM STDIN";
+
+    private static final String MERGE_FROM_STAGING =
+            "INSERT INTO telephone_numbers (number, country_code, area_code, number_type, category, features, status, batch_id) " +
+            "SELECT DISTINCT ON (number) number, country_code, area_code, number_type, category, features, ?, ? " +
+            "FROM telephone_numbers_staging " +
+            "ON CONFLICT (number) DO NOTHING " +
+            "RETURNING id, number, country_code, area_code, number_type, category, features, status, batch_id, version, created_at";
+
+    // Numbers that are no longer available keep the attributes they were allocated with
+    private static final String UPDATE_FROM_STAGING =
+            "WITH changed AS (" +
+            "SELECT DISTINCT ON (s.number) t.id, t.area_code AS previous_area_code, t.number_type AS previous_number_type, " +
+            "s.area_code, s.number_type, s.category, s.features " +
+            "FROM telephone_numbers_staging s JOIN telephone_numbers t ON t.number = s.number " +
+            "WHERE t.status = ? AND (t.area_code, t.number_type, t.category, t.features) " +
+            "IS DISTINCT FROM (s.area_code, s.number_type, s.category, s.features)) " +
+            "UPDATE telephone_numbers t SET area_code = c.area_code, number_type = c.number_type, " +
+            "category = c.category, features = c.features, version = t.version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "FROM changed c WHERE t.id = c.id AND t.status = ? " +
+            "RETURNING t.id, t.number, t.country_code, t.area_code, t.number_type, t.category, t.features, t.status, " +
+            "t.batch_id, t.version, t.created_at, c.previous_area_code, c.previous_number_type";
+
+    // Expands a range on the server, so its numbers never travel over the wire as text
+    private static final String INSERT_RANGE =
+            "INSERT INTO telephone_numbers (number, country_code, area_code, number_type, category, features, status, batch_id) " +
+            "SELECT '+' || lpad(n::text, ?, '0'), ?, ?, ?, ?, ?, ?, ? " +
+            "FROM generate_series(?::bigint, ?::bigint) AS n " +
+            "ON CONFLICT (number) DO NOTHING " +
+            "RETURNING id, number, country_code, area_code, number_type, category, features, status, batch_id, version, created_at";
+
+    // Column limits from V1__initial_schema.sql; longer values would abort the whole COPY
+    private static final int[] MAX_LENGTHS = {20, 5, 10, 50, 50, Integer.MAX_VALUE};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the rows whose number does not exist yet. With {@code applyChanges}, existing available
+     * numbers whose area code, type, category or features differ from their row are updated first.
+     */
+    @Transactional
+    public BulkLoadResult load(PackedRows rows, String batchId, boolean applyChanges) {
+        return jdbcTemplate.execute((ConnectionCallback<BulkLoadResult>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE);
+            }
+
+            int[] counts = copyIntoStaging(connection, rows);
+            List<NumberUpdate> updated = applyChanges && counts[0] > 0
+                    ? updateFromStaging(connection)
+                    : new ArrayList<>();
+            List<TelephoneNumber> inserted = mergeFromStaging(connection, batchId);
+
+            log.debug("Bulk loaded batch {}: staged={}, inserted={}, updated={}, rejected={}",
+                    batchId, counts[0], inserted.size(), updated.size(), counts[1]);
+            return new BulkLoadResult(inserted, counts[0], counts[1], updated);
+        });
+    }
+
+    /**
+     * Inserts every number of the given ranges that does not exist yet.
+     */
+    @Transactional
+    public BulkLoadResult loadRanges(List<NumberRange> ranges, String batchId) {
+        return jdbcTemplate.execute((ConnectionCallback<BulkLoadResult>) connection -> {
+            List<TelephoneNumber> inserted = new ArrayList<>();
+            long expanded = 0;
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_RANGE)) {
+                for (NumberRange range : ranges) {
+                    statement.setInt(1, range.getDigits());
+                    statement.setString(2, range.getCountryCode());
+                    statement.setString(3, range.getAreaCode());
+                    statement.setString(4, range.getNumberType());
+                    statement.setString(5, range.getCategory());
+                    statement.setString(6, range.getFeatures());
+                    statement.setString(7, NumberStatus.AVAILABLE.name());
+                    statement.setString(8, batchId);
+                    statement.setLong(9, range.getFirst());
+                    statement.setLong(10, range.getLast());
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            inserted.add(mapRow(resultSet));
+                        }
+                    }
+                    expanded += range.size();
+                }
+            }
+
+            log.debug("Bulk loaded ranges for batch {}: expanded={}, inserted={}", batchId, expanded, inserted.size());
+            return new BulkLoadResult(inserted, (int) expanded, 0);
+        });
+    }
+
+    private int[] copyIntoStaging(Connection connection, PackedRows rows) throws SQLException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows.size() * 64);
+        int staged = 0;
+        int rejected = 0;
+
+        // Fields are encoded from the chunk's bytes; rows rejected by validation were counted there
+        for (int row = 0; row < rows.size(); row++) {
+            if (rows.isRejected(row)) {
+                continue;
+            }
+            if (!isLoadable(rows, row)) {
+                rejected++;
+                continue;
+            }
+
+            for (int column = 0; column < PackedRows.COLUMNS; column++) {
+                if (column > 0) {
+                    buffer.write('\t');
+                }
+                writeField(buffer, rows, row, column);
+            }
+            buffer.write('\n');
+            staged++;
+        }
+
+        if (staged > 0) {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn(COPY_INTO_STAGING);
+            try {
+                byte[] bytes = buffer.toByteArray();
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+
+        return new int[]{staged, rejected};
+    }
+
+    private List<NumberUpdate> updateFromStaging(Connection connection) throws SQLException {
+        List<NumberUpdate> updated = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_FROM_STAGING)) {
+            statement.setString(1, NumberStatus.AVAILABLE.name());
+            statement.setString(2, NumberStatus.AVAILABLE.name());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    updated.add(new NumberUpdate(mapRow(resultSet),
+                            resultSet.getString("previous_area_code"), resultSet.getString("previous_number_type")));
+                }
+            }
+        }
+
+        return updated;
+    }
+
+    private List<TelephoneNumber> mergeFromStaging(Connection connection, String batchId) throws SQLException {
+        List<TelephoneNumber> inserted = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_FROM_STAGING)) {
+            statement.setString(1, NumberStatus.AVAILABLE.name());
+            statement.setString(2, batchId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    inserted.add(mapRow(resultSet));
+                }
+            }
+        }
+
+        return inserted;
+    }
+
+    private boolean isLoadable(PackedRows rows, int row) {
+        if (rows.length(row, PackedRows.NUMBER) == 0 || rows.length(row, PackedRows.COUNTRY_CODE) == 0) {
+            return false;
+        }
+
+        for (int column = 0; column < PackedRows.COLUMNS; column++) {
+            // Byte length bounds the character count, so only long values need counting
+            if (rows.length(row, column) > MAX_LENGTHS[column] && rows.charLength(row, column) > MAX_LENGTHS[column]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Encodes a field in the COPY text format: tab separated, \N for NULL, backslash escapes
+    private static void writeField(ByteArrayOutputStream buffer, PackedRows rows, int row, int column) {
+        int length = rows.length(row, column);
+        if (length == 0) {
+            buffer.write('\\');
+            buffer.write('N');
+            return;
+        }
+
+        // UTF-8 continuation bytes never fall in the ASCII range, so escaping byte-wise is safe
+        for (int i = 0; i < length; i++) {
+            byte b = rows.byteAt(row, column, i);
+            switch (b) {
+                case '\\':
+                    buffer.write('\\');
+                    buffer.write('\\');
+                    break;
+                case '\t':
+                    buffer.write('\\');
+                    buffer.write('t');
+                    break;
+                case '\n':
+                    buffer.write('\\');
+                    buffer.write('n');
+                    break;
+                case '\r':
+                    buffer.write('\\');
+                    buffer.write('r');
+                    break;
+                default:
+                    buffer.write(b);
+            }
+        }
+    }
+
+    private static TelephoneNumber mapRow(ResultSet resultSet) throws SQLException {
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        return TelephoneNumber.builder()
+                .id(resultSet.getLong("id"))
+                .number(resultSet.getString("number"))
+                .countryCode(resultSet.getString("country_code"))
+                .areaCode(resultSet.getString("area_code"))
+                .numberType(resultSet.getString("number_type"))
+                .category(resultSet.getString("category"))
+                .features(resultSet.getString("features"))
+                .status(NumberStatus.valueOf(resultSet.getString("status")))
+                .batchId(resultSet.getString("batch_id"))
+                .version(resultSet.getLong("version"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .build();
+    }
+}
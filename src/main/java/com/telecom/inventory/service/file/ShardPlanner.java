@@ -0,0 +1,69 @@
+package com.telecom.inventory.service.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an uploaded file into byte ranges that each start at the beginning of a row, so that every
+ * range can be parsed independently. Quoted fields spanning lines are not expected in number files and
+ * are not taken into account when looking for row boundaries.
+ */
+public final class ShardPlanner {
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private ShardPlanner() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the shard boundaries as ascending offsets: shard i covers [boundaries[i], boundaries[i + 1]).
+     * The first boundary is always 0 and the last is the file size.
+     */
+    public static List<Long> planBoundaries(Path file, long shardSize) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long target = shardSize;
+
+            while (target < size) {
+                long boundary = nextRowStart(channel, buffer, target, size);
+                if (boundary >= size) {
+                    break;
+                }
+                boundaries.add(boundary);
+                target = boundary + shardSize;
+            }
+
+            boundaries.add(size);
+        }
+
+        return boundaries;
+    }
+
+    private static long nextRowStart(FileChannel channel, ByteBuffer buffer, long from, long size) throws IOException {
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
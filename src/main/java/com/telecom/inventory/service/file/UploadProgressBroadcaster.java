@@ -0,0 +1,193 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.dto.FileUploadDTO;
+import com.telecom.inventory.model.FileUploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the live counters of shards running on this node and the server-sent event subscribers of
+ * each upload. Progress is pushed to subscribers from memory; the database is only read when a
+ * subscriber's view of shards running elsewhere needs refreshing.
+ */
+@Component
+@Slf4j
+public class UploadProgressBroadcaster {
+
+    @Getter
+    @AllArgsConstructor
+    public static class ShardProgress {
+        private final int totalRecords;
+        private final ChunkResult totals;
+    }
+
+    private static final String EVENT_NAME = "progress";
+
+    // Counters of shards running on this node, by batch ID and shard index
+    private final Map<String, Map<Integer, ShardProgress>> running = new ConcurrentHashMap<>();
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    public void update(String batchId, int shardIndex, int totalRecords, ChunkResult totals) {
+        running.computeIfAbsent(batchId, id -> new ConcurrentHashMap<>())
+                .put(shardIndex, new ShardProgress(totalRecords, totals));
+    }
+
+    /**
+     * Drops a finished shard's counters and makes the next push re-read the upload from the database.
+     */
+    public void finish(String batchId, int shardIndex) {
+        running.computeIfPresent(batchId, (id, shards) -> {
+            shards.remove(shardIndex);
+            return shards.isEmpty() ? null : shards;
+        });
+        Subscription subscription = subscriptions.get(batchId);
+        if (subscription != null) {
+            subscription.refreshedAt = 0;
+        }
+    }
+
+    public Map<Integer, ShardProgress> running(String batchId) {
+        return running.getOrDefault(batchId, Collections.emptyMap());
+    }
+
+    public SseEmitter subscribe(String batchId, FileUploadDTO current, long timeoutMillis) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = subscriptions.computeIfAbsent(batchId, id -> new Subscription());
+        subscription.emitters.add(emitter);
+        
+        Runnable remove = () -> unsubscribe(batchId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        
+        // Send the current state right away; a finished upload has nothing more to report
+        sendTo(emitter, current);
+        if (isFinished(current)) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    public Set<String> watchedBatches() {
+        return subscriptions.keySet();
+    }
+
+    /**
+     * Whether the database view of an upload is older than {@code intervalMillis}.
+     */
+    public boolean needsRefresh(String batchId, long now, long intervalMillis) {
+        Subscription subscription = subscriptions.get(batchId);
+        return subscription != null && now - subscription.refreshedAt >= intervalMillis;
+    }
+
+    /**
+     * Stores the upload and its shard counters as last persisted in the database.
+     */
+    public void refresh(String batchId, FileUploadDTO upload, Map<Integer, ShardProgress> persistedShards, long now) {
+        Subscription subscription = subscriptions.get(batchId);
+        if (subscription != null) {
+            subscription.upload = upload;
+            subscription.persistedShards = persistedShards;
+            subscription.refreshedAt = now;
+        }
+    }
+
+    /**
+     * Combines the database view of an upload with the live counters of its shards running on this node.
+     * Returns null when the upload has not been read from the database yet.
+     */
+    public FileUploadDTO snapshot(String batchId) {
+        Subscription subscription = subscriptions.get(batchId);
+        if (subscription == null || subscription.upload == null) {
+            return null;
+        }
+        
+        FileUploadDTO upload = subscription.upload;
+        Map<Integer, ShardProgress> live = running(batchId);
+        if (isFinished(upload) || (live.isEmpty() && upload.getStatus() != FileUploadStatus.PROCESSING)) {
+            return upload;
+        }
+        
+        Map<Integer, ShardProgress> shards = new HashMap<>(subscription.persistedShards);
+        shards.putAll(live);
+        
+        int totalRecords = 0;
+        ChunkResult totals = new ChunkResult();
+        for (ShardProgress shard : shards.values()) {
+            totalRecords += shard.getTotalRecords();
+            totals.add(shard.getTotals());
+        }
+        
+        return upload.toBuilder()
+                .status(FileUploadStatus.PROCESSING)
+                .totalRecords(totalRecords)
+                .processedRecords(totals.getProcessed())
+                .insertedRecords(totals.getInserted())
+                .skippedRecords(totals.getSkipped())
+                .failedRecords(totals.getFailed())
+                .skippedChunks(totals.getSkippedChunks())
+                .updatedRecords(totals.getUpdated())
+                .build();
+    }
+
+    /**
+     * Sends a snapshot to every subscriber of an upload unless it equals the last one sent, and closes
+     * the subscriptions once the upload has finished.
+     */
+    public void publish(String batchId, FileUploadDTO snapshot) {
+        Subscription subscription = subscriptions.get(batchId);
+        if (subscription == null || snapshot.equals(subscription.lastSent)) {
+            return;
+        }
+        subscription.lastSent = snapshot;
+        
+        for (SseEmitter emitter : subscription.emitters) {
+            sendTo(emitter, snapshot);
+            if (isFinished(snapshot)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private void sendTo(SseEmitter emitter, FileUploadDTO snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the completion callback removes the emitter
+            log.debug("Could not send progress of batch {}", snapshot.getBatchId(), e);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(String batchId, SseEmitter emitter) {
+        subscriptions.computeIfPresent(batchId, (id, subscription) -> {
+            subscription.emitters.remove(emitter);
+            return subscription.emitters.isEmpty() ? null : subscription;
+        });
+    }
+
+    private static boolean isFinished(FileUploadDTO snapshot) {
+        return snapshot.getStatus() == FileUploadStatus.COMPLETED || snapshot.getStatus() == FileUploadStatus.FAILED;
+    }
+
+    private static final class Subscription {
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private volatile FileUploadDTO upload;
+        private volatile Map<Integer, ShardProgress> persistedShards = Collections.emptyMap();
+        private volatile FileUploadDTO lastSent;
+        private volatile long refreshedAt;
+    }
+}
@@ -0,0 +1,95 @@
+package com.telecom.inventory.service.file.parser;
+
+import com.telecom.inventory.exception.FileProcessingException;
+import com.telecom.inventory.util.CsvUtils;
+import com.telecom.inventory.util.PhoneNumberValidator;
+import lombok.Getter;
+
+/**
+ * Positions of the telephone number columns in an uploaded file, resolved from its header row.
+ * A file lists either one number per row ({@code number} column) or contiguous ranges
+ * ({@code start} and {@code end} columns).
+ */
+@Getter
+public class ColumnLayout {
+
+    private final int number;
+    private final int countryCode;
+    private final int areaCode;
+    private final int numberType;
+    private final int category;
+    private final int features;
+    private final int start;
+    private final int end;
+
+    // Scratch space for normalizing numbers; a layout is used by the single thread reading the file
+    private final char[] numberBuffer = new char[PhoneNumberValidator.MAX_LENGTH];
+
+    private ColumnLayout(String[] header) {
+        this.number = CsvUtils.getColumnIndex(header, "number");
+        this.start = CsvUtils.getColumnIndex(header, "start");
+        this.end = CsvUtils.getColumnIndex(header, "end");
+        this.countryCode = CsvUtils.getColumnIndex(header, "countryCode");
+        this.areaCode = CsvUtils.getColumnIndex(header, "areaCode");
+        this.numberType = CsvUtils.getColumnIndex(header, "numberType");
+        this.category = CsvUtils.getColumnIndex(header, "category");
+        this.features = CsvUtils.getColumnIndex(header, "features");
+    }
+
+    public static ColumnLayout fromHeader(String[] header) {
+        String[] columns = new String[header.length];
+        for (int i = 0; i < header.length; i++) {
+            // Strip whitespace and a UTF-8 byte order mark left by spreadsheet exports
+            columns[i] = header[i].replace("\uFEFF", "").trim();
+        }
+
+        ColumnLayout layout = new ColumnLayout(columns);
+        if ((layout.number < 0 && !layout.isRange()) || layout.countryCode < 0) {
+            throw new FileProcessingException(
+                    "CSV file must contain 'countryCode' and either 'number' or 'start' and 'end' columns");
+        }
+        return layout;
+    }
+
+    /**
+     * Whether rows describe number ranges rather than single numbers.
+     */
+    public boolean isRange() {
+        return number < 0 && start >= 0 && end >= 0;
+    }
+
+    /**
+     * Appends the known columns of a row to {@code rows} in canonical order, without decoding them.
+     * The number is normalized to E.164 straight from the row's bytes; a value that is not a phone
+     * number is kept as it is, for validation to reject.
+     */
+    public void appendTo(CsvRow row, PackedRows rows) {
+        rows.startRow();
+        int length = PhoneNumberValidator.normalize(row.chars(number), numberBuffer);
+        if (length > 0) {
+            rows.append(PackedRows.NUMBER, numberBuffer, length);
+        } else {
+            rows.append(PackedRows.NUMBER, row, number);
+        }
+        rows.append(PackedRows.COUNTRY_CODE, row, countryCode);
+        rows.append(PackedRows.AREA_CODE, row, areaCode);
+        rows.append(PackedRows.NUMBER_TYPE, row, numberType);
+        rows.append(PackedRows.CATEGORY, row, category);
+        rows.append(PackedRows.FEATURES, row, features);
+    }
+
+    /**
+     * Materializes a range row in the order start, end, countryCode, areaCode, numberType, category, features.
+     */
+    public String[] extractRange(CsvRow row) {
+        return new String[]{
+                row.getString(start),
+                row.getString(end),
+                row.getString(countryCode),
+                row.getString(areaCode),
+                row.getString(numberType),
+                row.getString(category),
+                row.getString(features)
+        };
+    }
+}
@@ -0,0 +1,191 @@
+package com.telecom.inventory.service.file.parser;
+
+import com.telecom.inventory.exception.FileProcessingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte-level CSV tokenizer. Rows are exposed through a single reusable {@link CsvRow} that slices the
+ * underlying buffer instead of allocating a String per field. Subclasses supply the bytes in windows;
+ * when a row straddles the end of a window the parser asks for a new window starting at that row.
+ *
+ * Supports comma separators, LF or CRLF line endings and RFC 4180 quoted fields. Blank lines are skipped.
+ */
+public abstract class CsvParser implements Closeable {
+
+    private final CsvRow row = new CsvRow();
+
+    private ByteBuffer window;
+    private long windowOffset;
+    private long rowOffset;
+    private long nextOffset;
+
+    protected CsvParser(long startOffset) {
+        this.rowOffset = startOffset;
+        this.nextOffset = startOffset;
+    }
+
+    /**
+     * Returns a buffer whose position 0 corresponds to the given absolute offset, or null at end of input.
+     * The buffer must contain every byte from the offset that is still available, up to the window size.
+     */
+    protected abstract ByteBuffer fill(long offset) throws IOException;
+
+    /**
+     * Whether bytes exist beyond the end of the current window.
+     */
+    protected abstract boolean hasMoreAfter(long windowEndOffset);
+
+    public CsvRow row() {
+        return row;
+    }
+
+    /**
+     * Absolute offset of the first byte of the current row.
+     */
+    public long getRowOffset() {
+        return rowOffset;
+    }
+
+    /**
+     * Absolute offset just past the current row; a parser resumed at this offset continues with the next row.
+     */
+    public long getPosition() {
+        return nextOffset;
+    }
+
+    /**
+     * Returns the raw bytes of the current row without its line terminator, as a view of the parser's
+     * buffer that is only valid until the next call to {@link #next()}.
+     */
+    public ByteBuffer rowBytes() {
+        int start = (int) (rowOffset - windowOffset);
+        int end = (int) (nextOffset - windowOffset);
+        while (end > start && (window.get(end - 1) == '\n' || window.get(end - 1) == '\r')) {
+            end--;
+        }
+        ByteBuffer bytes = window.duplicate();
+        bytes.limit(end);
+        bytes.position(start);
+        return bytes;
+    }
+
+    /**
+     * Repositions the parser so the next row read starts at the given absolute offset,
+     * typically a value previously returned by {@link #getPosition()}.
+     */
+    public void seek(long offset) {
+        window = null;
+        rowOffset = offset;
+        nextOffset = offset;
+    }
+
+    public boolean next() throws IOException {
+        while (true) {
+            if (window == null || nextOffset >= windowOffset + window.limit()) {
+                if (!loadWindow(nextOffset)) {
+                    return false;
+                }
+            }
+
+            int start = (int) (nextOffset - windowOffset);
+            boolean endOfInput = !hasMoreAfter(windowOffset + window.limit());
+            int end = tokenize(start, endOfInput);
+            if (end < 0) {
+                if (start == 0) {
+                    throw new FileProcessingException("CSV row at offset " + nextOffset + " exceeds the parser window");
+                }
+                // The row straddles the window; continue with a window that starts at this row
+                loadWindow(nextOffset);
+                continue;
+            }
+
+            rowOffset = nextOffset;
+            nextOffset = windowOffset + end;
+
+            if (row.getFieldCount() == 1 && row.isEmpty(0)) {
+                continue;
+            }
+            return true;
+        }
+    }
+
+    private boolean loadWindow(long offset) throws IOException {
+        ByteBuffer buffer = fill(offset);
+        if (buffer == null || buffer.limit() == 0) {
+            return false;
+        }
+        window = buffer;
+        windowOffset = offset;
+        return true;
+    }
+
+    /**
+     * Splits one row into fields starting at {@code start}. Returns the index just past the row's line
+     * terminator, or -1 if the window ends before the row does and more input follows.
+     */
+    private int tokenize(int start, boolean endOfInput) {
+        row.reset(window);
+        int limit = window.limit();
+        int i = start;
+
+        while (true) {
+            if (i < limit && window.get(i) == '"') {
+                // Quoted field: runs until a quote that is not followed by another quote
+                int fieldStart = i + 1;
+                boolean escapedQuotes = false;
+                i = fieldStart;
+                while (i < limit) {
+                    if (window.get(i) == '"') {
+                        if (i + 1 < limit && window.get(i + 1) == '"') {
+                            escapedQuotes = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 < limit || endOfInput) {
+                            break;
+                        }
+                        // Cannot tell a closing quote from the first half of an escaped one yet
+                        return -1;
+                    }
+                    i++;
+                }
+                if (i >= limit && !endOfInput) {
+                    return -1;
+                }
+                row.addField(fieldStart, Math.min(i, limit), escapedQuotes);
+                i++;
+                // Ignore anything between the closing quote and the next separator
+                while (i < limit && window.get(i) != ',' && window.get(i) != '\n') {
+                    i++;
+                }
+            } else {
+                int fieldStart = i;
+                while (i < limit && window.get(i) != ',' && window.get(i) != '\n') {
+                    i++;
+                }
+                if (i >= limit && !endOfInput) {
+                    return -1;
+                }
+                int fieldEnd = i;
+                if ((i >= limit || window.get(i) == '\n') && fieldEnd > fieldStart && window.get(fieldEnd - 1) == '\r') {
+                    fieldEnd--;
+                }
+                row.addField(fieldStart, fieldEnd, false);
+            }
+
+            if (i >= limit) {
+                return limit;
+            }
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+            i++;
+        }
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+}
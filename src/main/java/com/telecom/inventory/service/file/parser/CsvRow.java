@@ -0,0 +1,142 @@
+package com.telecom.inventory.service.file.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Flyweight view of the current row of a {@link CsvParser}. Fields are kept as byte ranges into the
+ * parser's buffer and only decoded when asked for, so the instance is reused for every row and is
+ * only valid until the parser advances.
+ */
+public final class CsvRow {
+
+    private ByteBuffer buffer;
+    private int fieldCount;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] escaped = new boolean[8];
+    private byte[] scratch = new byte[64];
+    private final FieldChars chars = new FieldChars();
+
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.fieldCount = 0;
+    }
+
+    void addField(int start, int end, boolean hasEscapedQuotes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapedQuotes;
+        fieldCount++;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the raw byte length of a field, or 0 when the column does not exist in this row.
+     */
+    public int length(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return 0;
+        }
+        return ends[field] - starts[field];
+    }
+
+    public boolean isEmpty(int field) {
+        return length(field) == 0;
+    }
+
+    /**
+     * Returns a byte of a field without decoding it. Escaped quotes are returned as they appear in the file.
+     */
+    public byte byteAt(int field, int index) {
+        return buffer.get(starts[field] + index);
+    }
+
+    /**
+     * Returns a field as characters, one per byte, without decoding it. The view is reused for every
+     * call and only suits ASCII content such as numbers and codes.
+     */
+    public CharSequence chars(int field) {
+        chars.field = field;
+        return chars;
+    }
+
+    /**
+     * Decodes a field, returning null for empty fields and for columns missing from this row.
+     */
+    public String getString(int field) {
+        int length = length(field);
+        if (length == 0) {
+            return null;
+        }
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        int size = copy(field, scratch, 0);
+        return new String(scratch, 0, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the bytes of a field to {@code target}, which must have room for {@link #length} bytes,
+     * collapsing escaped quotes. Returns the number of bytes copied.
+     */
+    public int copy(int field, byte[] target, int offset) {
+        int length = length(field);
+        int start = length > 0 ? starts[field] : 0;
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            target[offset + size++] = b;
+            // Collapse "" into a single quote inside quoted fields
+            if (b == '"' && escaped[field]) {
+                i++;
+            }
+        }
+        return size;
+    }
+
+    public String[] toArray() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            String value = getString(i);
+            values[i] = value != null ? value : "";
+        }
+        return values;
+    }
+
+    private final class FieldChars implements CharSequence {
+
+        private int field;
+
+        @Override
+        public int length() {
+            return CsvRow.this.length(field);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (byteAt(field, index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            String value = getString(field);
+            return value != null ? value : "";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.telecom.inventory.service.file.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses a file through memory-mapped windows of a {@link FileChannel}, so rows are tokenized straight
+ * from the page cache without copying them onto the heap. Files larger than one window (and larger than
+ * the 2 GB limit of a single mapping) are walked window by window.
+ */
+public class MappedCsvParser extends CsvParser {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long endOffset;
+    private final int windowSize;
+
+    MappedCsvParser(FileChannel channel, long startOffset, long endOffset, int windowSize) {
+        super(startOffset);
+        this.channel = channel;
+        this.endOffset = endOffset;
+        this.windowSize = windowSize;
+    }
+
+    public static MappedCsvParser open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new MappedCsvParser(channel, 0, channel.size(), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a parser that stops at {@code endOffset}, which must be a row boundary.
+     */
+    public static MappedCsvParser open(Path file, long endOffset) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new MappedCsvParser(channel, 0, Math.min(endOffset, channel.size()), DEFAULT_WINDOW_SIZE);
+    }
+
+    @Override
+    protected ByteBuffer fill(long offset) throws IOException {
+        if (offset >= endOffset) {
+            return null;
+        }
+        long length = Math.min(windowSize, endOffset - offset);
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    @Override
+    protected boolean hasMoreAfter(long windowEndOffset) {
+        return windowEndOffset < endOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,203 @@
+package com.telecom.inventory.service.file.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The rows of one chunk in canonical column order (number, countryCode, areaCode, numberType, category,
+ * features), copied out of the parser's buffer into a single byte array with the field bounds kept in
+ * an int array. A chunk costs three arrays however many rows it holds; fields are validated and written
+ * to the database from the bytes, and only decoded into Strings for rows that need them.
+ *
+ * Rows are appended by the thread reading the file and then handed from stage to stage, so an instance
+ * is never used by two threads at once.
+ */
+public final class PackedRows {
+
+    public static final int NUMBER = 0;
+    public static final int COUNTRY_CODE = 1;
+    public static final int AREA_CODE = 2;
+    public static final int NUMBER_TYPE = 3;
+    public static final int CATEGORY = 4;
+    public static final int FEATURES = 5;
+    public static final int COLUMNS = 6;
+
+    private byte[] data;
+    private int dataLength;
+    // Start and end of every field, COLUMNS pairs per row
+    private int[] bounds;
+    private int rows;
+    private final BitSet rejected = new BitSet();
+    private int rejectedCount;
+
+    public PackedRows(int expectedRows) {
+        this.data = new byte[Math.max(64, expectedRows * 32)];
+        this.bounds = new int[Math.max(1, expectedRows) * COLUMNS * 2];
+    }
+
+    /**
+     * Rows of a chunk, including rejected ones.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Rows that have not been rejected.
+     */
+    public int validCount() {
+        return rows - rejectedCount;
+    }
+
+    public void reject(int row) {
+        if (!rejected.get(row)) {
+            rejected.set(row);
+            rejectedCount++;
+        }
+    }
+
+    public boolean isRejected(int row) {
+        return rejected.get(row);
+    }
+
+    /**
+     * Byte length of a field, 0 when it is empty.
+     */
+    public int length(int row, int column) {
+        int index = (row * COLUMNS + column) * 2;
+        return bounds[index + 1] - bounds[index];
+    }
+
+    public byte byteAt(int row, int column, int index) {
+        return data[bounds[(row * COLUMNS + column) * 2] + index];
+    }
+
+    /**
+     * Length of a field in characters, counting each UTF-8 sequence once.
+     */
+    public int charLength(int row, int column) {
+        int index = (row * COLUMNS + column) * 2;
+        int count = 0;
+        for (int i = bounds[index]; i < bounds[index + 1]; i++) {
+            if ((data[i] & 0xC0) != 0x80) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decodes a field, returning null when it is empty.
+     */
+    public String getString(int row, int column) {
+        int index = (row * COLUMNS + column) * 2;
+        int length = bounds[index + 1] - bounds[index];
+        return length > 0 ? new String(data, bounds[index], length, StandardCharsets.UTF_8) : null;
+    }
+
+    public String[] toArray(int row) {
+        String[] values = new String[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            values[column] = getString(row, column);
+        }
+        return values;
+    }
+
+    /**
+     * Decodes the rows that have not been rejected.
+     */
+    public List<String[]> toList() {
+        List<String[]> list = new ArrayList<>(validCount());
+        for (int row = 0; row < rows; row++) {
+            if (!rejected.get(row)) {
+                list.add(toArray(row));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * A view of one field at a time as characters, one per byte, for checking ASCII content such as
+     * numbers and codes without decoding it. Each thread that reads fields creates its own.
+     */
+    public Field field() {
+        return new Field();
+    }
+
+    void startRow() {
+        if ((rows + 1) * COLUMNS * 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        rows++;
+    }
+
+    /**
+     * Copies the next field of the current row from a parsed row, collapsing escaped quotes.
+     */
+    void append(int column, CsvRow row, int field) {
+        ensureCapacity(row.length(field));
+        int start = dataLength;
+        dataLength += row.copy(field, data, dataLength);
+        setBounds(column, start);
+    }
+
+    void append(int column, char[] chars, int length) {
+        ensureCapacity(length);
+        int start = dataLength;
+        for (int i = 0; i < length; i++) {
+            data[dataLength++] = (byte) chars[i];
+        }
+        setBounds(column, start);
+    }
+
+    private void setBounds(int column, int start) {
+        int index = ((rows - 1) * COLUMNS + column) * 2;
+        bounds[index] = start;
+        bounds[index + 1] = dataLength;
+    }
+
+    private void ensureCapacity(int length) {
+        if (dataLength + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(dataLength + length, data.length * 2));
+        }
+    }
+
+    public final class Field implements CharSequence {
+
+        private int row;
+        private int column;
+
+        private Field() {
+        }
+
+        public Field of(int row, int column) {
+            this.row = row;
+            this.column = column;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return PackedRows.this.length(row, column);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (byteAt(row, column, index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            String value = getString(row, column);
+            return value != null ? value : "";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.telecom.inventory.service.file.parser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses rows straight from an {@link InputStream} (for example a request body that is still being
+ * received) through a single reusable heap buffer. When a row straddles the end of the buffer the
+ * unread tail is moved to the front and the rest of the buffer is refilled from the stream.
+ * Only forward {@link #seek(long) seeks} are supported; they skip bytes of the stream.
+ */
+public class StreamingCsvParser extends CsvParser {
+
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private long bufferOffset;
+    private int length;
+    private boolean endOfStream;
+
+    public StreamingCsvParser(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    StreamingCsvParser(InputStream inputStream, int bufferSize) {
+        super(0);
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    protected ByteBuffer fill(long offset) throws IOException {
+        long bufferEnd = bufferOffset + length;
+        if (offset < bufferOffset) {
+            throw new IllegalStateException("Cannot seek backwards in a stream to offset " + offset);
+        }
+
+        if (offset >= bufferEnd) {
+            skipFully(offset - bufferEnd);
+            length = 0;
+        } else {
+            // Keep the bytes from the requested offset that were already read
+            int keep = (int) (bufferEnd - offset);
+            System.arraycopy(buffer, (int) (offset - bufferOffset), buffer, 0, keep);
+            length = keep;
+        }
+        bufferOffset = offset;
+
+        while (length < buffer.length && !endOfStream) {
+            int read = inputStream.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                length += read;
+            }
+        }
+
+        return length > 0 ? ByteBuffer.wrap(buffer, 0, length) : null;
+    }
+
+    @Override
+    protected boolean hasMoreAfter(long windowEndOffset) {
+        return !endOfStream;
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("Stream ended before offset " + (bufferOffset + length + bytes));
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -11,7 +11,11 @@ import com.telecom.inventory.model.NumberStatusHistory;
 import com.telecom.inventory.model.TelephoneNumber;
 import com.telecom.inventory.repository.NumberStatusHistoryRepository;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.service.search.AvailabilityIndex;
+import com.telecom.inventory.service.search.NumberPrefixIndex;
 import com.telecom.inventory.service.search.SearchIndexService;
+import com.telecom.inventory.service.search.SearchResultCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -30,13 +34,17 @@ public class LifecycleManagementService {
     private final TelephoneNumberRepository telephoneNumberRepository;
     private final NumberStatusHistoryRepository statusHistoryRepository;
     private final SearchIndexService searchIndexService;
+    private final SearchResultCache searchResultCache;
+    private final AvailabilityIndex availabilityIndex;
+    private final NumberPrefixIndex numberPrefixIndex;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final StageMetrics stageMetrics;
 
     @Transactional
     public TelephoneNumberDTO changeStatus(Long numberId, StatusChangeDTO statusChangeDTO, String username) {
         try {
             // Use pessimistic locking to prevent concurrent status changes
-            TelephoneNumber telephoneNumber = telephoneNumberRepository.findByIdWithLock(numberId)
+            TelephoneNumber telephoneNumber = stageMetrics.time("status.change", "lock", () -> telephoneNumberRepository.findByIdWithLock(numberId))
                     .orElseThrow(() -> new ResourceNotFoundException("Telephone number not found with id: " + numberId));
             
             // Validate the status transition
@@ -53,13 +61,16 @@ public class LifecycleManagementService {
             telephoneNumber.addStatusHistory(oldStatus, statusChangeDTO.getNewStatus(), username, 
                     statusChangeDTO.getReason() != null ? statusChangeDTO.getReason() : "Status changed");
             
-            // Save the changes
-            telephoneNumber = telephoneNumberRepository.save(telephoneNumber);
+            // Save the changes, flushing so the timing covers the update and the history insert
+            TelephoneNumber saved = stageMetrics.time("status.change", "save", () -> telephoneNumberRepository.saveAndFlush(telephoneNumber));
             
             // Update the search index
-            searchIndexService.updateTelephoneNumberIndex(telephoneNumber);
+            stageMetrics.time("status.change", "index.update", () -> searchIndexService.updateTelephoneNumberIndex(saved));
+            searchResultCache.invalidate(saved, oldStatus);
+            availabilityIndex.update(saved, oldStatus);
+            numberPrefixIndex.update(saved, oldStatus);
             
-            return mapToDTO(telephoneNumber);
+            return mapToDTO(saved);
         } catch (ObjectOptimisticLockingFailureException e) {
             log.error("Concurrent modification detected", e);
             throw new ConcurrencyException("The number has been modified by another user. Please try again.");
@@ -0,0 +1,69 @@
+package com.telecom.inventory.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the internal stages of an operation, such as the Elasticsearch query of a search or the
+ * lock wait of a reservation, recorded in the {@value #TIMER} timer with percentile histograms so p99
+ * spikes can be traced to a stage. Every timing carries the same three tags: {@code operation} (search,
+ * reserve, ingest, ...), {@code stage} (es.query, lock, save, ...) and {@code outcome} (success or error).
+ */
+@Component
+@RequiredArgsConstructor
+public class StageMetrics {
+
+    public static final String TIMER = "inventory.stage.duration";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs {@code work} and records how long it took, whether it returned or threw.
+     */
+    public <T, E extends Exception> T time(String operation, String stage, Work<T, E> work) throws E {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = work.run();
+            success = true;
+            return result;
+        } finally {
+            record(operation, stage, success, System.nanoTime() - start);
+        }
+    }
+
+    public void time(String operation, String stage, Runnable work) {
+        time(operation, stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a duration measured by the caller, for stages that are not a single call.
+     */
+    public void record(String operation, String stage, boolean success, long nanos) {
+        String outcome = success ? "success" : "error";
+        timers.computeIfAbsent(operation + '|' + stage + '|' + outcome, key -> Timer.builder(TIMER)
+                        .description("Time spent in one stage of an inventory operation")
+                        .tag("operation", operation)
+                        .tag("stage", stage)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,104 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.util.PhoneNumberValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory index of AVAILABLE numbers, bucketed by country code, area code and number type, that
+ * answers the most common search (available numbers of one country, area and type) without
+ * Elasticsearch. The index only yields the ids of a page, in number order; the caller loads their rows
+ * from the database in that order.
+ */
+@Component
+public class AvailabilityIndex extends NumberIndex<AvailabilityIndex.BucketKey> {
+
+    // Available numbers of every bucket, streamed in number order within each bucket
+    private static final String LOAD_SQL =
+            "SELECT id, number, country_code, area_code, number_type, status FROM telephone_numbers " +
+            "WHERE status = 'AVAILABLE' " +
+            "ORDER BY country_code, area_code, number_type, length(number), number";
+
+    @lombok.Value
+    static class BucketKey {
+        String countryCode;
+        String areaCode;
+        String numberType;
+    }
+
+    public AvailabilityIndex(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                             @Value("${app.search.availability-index.enabled:true}") boolean enabled,
+                             @Value("${app.search.availability-index.reload-interval-ms:600000}") long reloadIntervalMillis,
+                             @Value("${app.search.availability-index.compaction-ratio:0.1}") double compactionRatio) {
+        super("availability.index", jdbcTemplate, transactionTemplate, meterRegistry, enabled, reloadIntervalMillis,
+                compactionRatio);
+    }
+
+    @Override
+    protected String loadSql() {
+        return LOAD_SQL;
+    }
+
+    @Override
+    protected BucketKey keyOf(String countryCode, String areaCode, String numberType, NumberStatus status) {
+        return status == NumberStatus.AVAILABLE ? new BucketKey(countryCode, areaCode, numberType) : null;
+    }
+
+    /**
+     * Whether the criteria select exactly one bucket and nothing the index does not hold.
+     */
+    public boolean canAnswer(SearchCriteriaDTO criteria) {
+        return isReady()
+                && (criteria.getStatus() == null || criteria.getStatus() == NumberStatus.AVAILABLE)
+                && !isBlank(criteria.getCountryCode())
+                && !isBlank(criteria.getAreaCode())
+                && !isBlank(criteria.getNumberType())
+                && PhoneNumberValidator.searchTerm(criteria.getNumber()) == null
+                && isBlank(criteria.getCategory())
+                && isBlank(criteria.getFeatures())
+                && (criteria.getPatterns() == null || criteria.getPatterns().isEmpty())
+                && criteria.getMinVanityScore() == null
+                && !Boolean.TRUE.equals(criteria.getSortByVanity());
+    }
+
+    /**
+     * Returns the ids of a page of the available numbers of the criteria's bucket, in number order. The
+     * index holds no other columns, so callers load the rows themselves. A page that is out of range
+     * or holds no numbers is empty.
+     */
+    public List<Long> searchIds(SearchCriteriaDTO criteria) {
+        int page = criteria.getPage() != null ? criteria.getPage() : 0;
+        int size = criteria.getSize() != null ? criteria.getSize() : 20;
+        long offset = (long) page * size;
+        if (page < 0 || size < 1 || offset > Integer.MAX_VALUE) {
+            return new ArrayList<>();
+        }
+        
+        NumberBucket bucket = bucket(new BucketKey(criteria.getCountryCode(), criteria.getAreaCode(), criteria.getNumberType()));
+        if (bucket == null) {
+            return new ArrayList<>();
+        }
+        
+        long[] numbers = new long[size];
+        long[] ids = new long[size];
+        int count = bucket.page((int) offset, size, numbers, ids);
+        
+        List<Long> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(ids[i]);
+        }
+        return results;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,220 @@
+package com.telecom.inventory.service.search;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Numbers of one bucket of an in-memory {@link NumberIndex}, as E.164 digits in a long. The bulk lives
+ * off-heap in a direct buffer of (number, id) long pairs sorted by number; numbers that leave the bucket
+ * are tombstoned in a bit set and numbers that join it are kept in a small sorted on-heap delta. Once
+ * the delta and tombstones outgrow a fraction of the buffer, both are merged into a new buffer.
+ */
+class NumberBucket {
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int MIN_COMPACTION_CHANGES = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final double compactionRatio;
+    private ByteBuffer base;
+    private int baseCount;
+    private BitSet removed = new BitSet();
+    private int removedCount;
+    private final TreeMap<Long, Long> added = new TreeMap<>();
+
+    /**
+     * Creates a bucket from the first {@code count} entries of the arrays, which must be sorted by number.
+     */
+    NumberBucket(long[] numbers, long[] ids, int count, double compactionRatio) {
+        this.compactionRatio = compactionRatio;
+        this.base = ByteBuffer.allocateDirect(count * ENTRY_BYTES);
+        for (int i = 0; i < count; i++) {
+            base.putLong(i * ENTRY_BYTES, numbers[i]);
+            base.putLong(i * ENTRY_BYTES + Long.BYTES, ids[i]);
+        }
+        this.baseCount = count;
+    }
+
+    void add(long number, long id) {
+        lock.writeLock().lock();
+        try {
+            int index = find(number);
+            if (index >= 0) {
+                if (removed.get(index)) {
+                    removed.clear(index);
+                    removedCount--;
+                }
+                base.putLong(index * ENTRY_BYTES + Long.BYTES, id);
+            } else {
+                added.put(number, id);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long number) {
+        lock.writeLock().lock();
+        try {
+            int index = find(number);
+            if (index >= 0) {
+                if (!removed.get(index)) {
+                    removed.set(index);
+                    removedCount++;
+                }
+            } else {
+                added.remove(number);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return baseCount - removedCount + added.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies up to {@code limit} entries, in number order, starting at the {@code offset}-th number.
+     * Returns the number of entries copied.
+     */
+    int page(int offset, int limit, long[] numbers, long[] ids) {
+        return range(Long.MIN_VALUE, Long.MAX_VALUE, offset, limit, numbers, ids);
+    }
+
+    /**
+     * Counts the numbers between {@code from} and {@code to}, both inclusive. The bounds are found by
+     * binary search; only the tombstones and pending additions inside the range are scanned.
+     */
+    int count(long from, long to) {
+        lock.readLock().lock();
+        try {
+            int first = lowerBound(from);
+            int end = to == Long.MAX_VALUE ? baseCount : lowerBound(to + 1);
+            int tombstones = first < end ? removed.get(first, end).cardinality() : 0;
+            return end - first - tombstones + added.subMap(from, true, to, true).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #page}, restricted to the numbers between {@code from} and {@code to}, both inclusive.
+     */
+    int range(long from, long to, int offset, int limit, long[] numbers, long[] ids) {
+        lock.readLock().lock();
+        try {
+            int index = lowerBound(from);
+            NavigableMap<Long, Long> delta = added.subMap(from, true, to, true);
+            Iterator<Map.Entry<Long, Long>> pending = delta.entrySet().iterator();
+            Map.Entry<Long, Long> next = pending.hasNext() ? pending.next() : null;
+            int skipped = 0;
+            int copied = 0;
+
+            while (copied < limit) {
+                index = removed.nextClearBit(index);
+                boolean fromBase = index < baseCount && base.getLong(index * ENTRY_BYTES) <= to;
+                if (!fromBase && next == null) {
+                    break;
+                }
+
+                long number;
+                long id;
+                if (fromBase && (next == null || base.getLong(index * ENTRY_BYTES) < next.getKey())) {
+                    number = base.getLong(index * ENTRY_BYTES);
+                    id = base.getLong(index * ENTRY_BYTES + Long.BYTES);
+                    index++;
+                } else {
+                    number = next.getKey();
+                    id = next.getValue();
+                    next = pending.hasNext() ? pending.next() : null;
+                }
+
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    numbers[copied] = number;
+                    ids[copied] = id;
+                    copied++;
+                }
+            }
+            return copied;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int find(long number) {
+        int index = lowerBound(number);
+        return index < baseCount && base.getLong(index * ENTRY_BYTES) == number ? index : -1;
+    }
+
+    /**
+     * Index of the first base entry not below {@code number}, or the entry count if there is none.
+     */
+    private int lowerBound(long number) {
+        int low = 0;
+        int high = baseCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (base.getLong(mid * ENTRY_BYTES) < number) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void compactIfNeeded() {
+        int changes = added.size() + removedCount;
+        if (changes < Math.max(MIN_COMPACTION_CHANGES, baseCount * compactionRatio)) {
+            return;
+        }
+
+        int count = baseCount - removedCount + added.size();
+        ByteBuffer merged = ByteBuffer.allocateDirect(count * ENTRY_BYTES);
+        int position = 0;
+        int index = 0;
+        Iterator<Map.Entry<Long, Long>> delta = added.entrySet().iterator();
+        Map.Entry<Long, Long> next = delta.hasNext() ? delta.next() : null;
+
+        while (true) {
+            index = removed.nextClearBit(index);
+            boolean fromBase = index < baseCount;
+            if (!fromBase && next == null) {
+                break;
+            }
+            if (fromBase && (next == null || base.getLong(index * ENTRY_BYTES) < next.getKey())) {
+                merged.putLong(position, base.getLong(index * ENTRY_BYTES));
+                merged.putLong(position + Long.BYTES, base.getLong(index * ENTRY_BYTES + Long.BYTES));
+                index++;
+            } else {
+                merged.putLong(position, next.getKey());
+                merged.putLong(position + Long.BYTES, next.getValue());
+                next = delta.hasNext() ? delta.next() : null;
+            }
+            position += ENTRY_BYTES;
+        }
+
+        // The old buffer is released by the garbage collector once unreachable
+        base = merged;
+        baseCount = count;
+        removed = new BitSet();
+        removedCount = 0;
+        added.clear();
+    }
+}
@@ -0,0 +1,308 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Base of the in-memory number indexes: numbers are held as longs in off-heap {@link NumberBucket
+ * buckets}, keyed by whatever a subclass derives from a number's columns, so tens of millions of them
+ * add little to the heap or to garbage collection.
+ *
+ * An index is loaded from {@code telephone_numbers} in the background at startup and reloaded
+ * periodically, which also picks up changes made by other nodes; changes on this node are applied as
+ * soon as their transaction commits. Until the first load completes the index is not {@link #isReady
+ * ready} and callers should fall back to Elasticsearch or the database.
+ */
+@Slf4j
+public abstract class NumberIndex<K> {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final String name;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long reloadIntervalMillis;
+    private final double compactionRatio;
+
+    private volatile Map<K, NumberBucket> buckets = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Changes made while a load is running, replayed onto the loaded buckets; guarded by itself
+    private final List<Consumer<Map<K, NumberBucket>>> pendingChanges = new ArrayList<>();
+    private boolean loading;
+
+    private ScheduledExecutorService loader;
+
+    protected NumberIndex(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry, boolean enabled, long reloadIntervalMillis, double compactionRatio) {
+        this.name = name;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+        this.compactionRatio = compactionRatio;
+    }
+
+    /**
+     * Query of the numbers to load, returning id, number, country_code, area_code, number_type and
+     * status, ordered by the columns of the bucket key and then by number (length first, then digits).
+     */
+    protected abstract String loadSql();
+
+    /**
+     * Bucket of a number with these columns, or null if the index does not hold it.
+     */
+    protected abstract K keyOf(String countryCode, String areaCode, String numberType, NumberStatus status);
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name.replace('.', '-'));
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.scheduleWithFixedDelay(this::reload, 0, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder(name + ".numbers", this, index -> index.buckets.values().stream()
+                        .mapToInt(NumberBucket::size).sum())
+                .description("Numbers held by the in-memory index " + name)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    protected NumberBucket bucket(K key) {
+        return buckets.get(key);
+    }
+
+    /**
+     * Records a status change of a number, once the surrounding transaction (if any) commits.
+     */
+    public void update(TelephoneNumber telephoneNumber, NumberStatus oldStatus) {
+        move(telephoneNumber, keyOf(telephoneNumber.getCountryCode(), telephoneNumber.getAreaCode(),
+                telephoneNumber.getNumberType(), oldStatus));
+    }
+
+    /**
+     * Records a change of a number's area code or type, once the surrounding transaction (if any) commits.
+     */
+    public void updateAttributes(TelephoneNumber telephoneNumber, String oldAreaCode, String oldNumberType) {
+        move(telephoneNumber, keyOf(telephoneNumber.getCountryCode(), oldAreaCode, oldNumberType,
+                telephoneNumber.getStatus()));
+    }
+
+    private void move(TelephoneNumber telephoneNumber, K oldKey) {
+        K newKey = keyOf(telephoneNumber.getCountryCode(), telephoneNumber.getAreaCode(),
+                telephoneNumber.getNumberType(), telephoneNumber.getStatus());
+        long number = toLong(telephoneNumber.getNumber());
+        if (!enabled || Objects.equals(oldKey, newKey) || number < 0) {
+            return;
+        }
+
+        long id = telephoneNumber.getId();
+        Consumer<Map<K, NumberBucket>> change = target -> {
+            if (oldKey != null) {
+                NumberBucket bucket = target.get(oldKey);
+                if (bucket != null) {
+                    bucket.remove(number);
+                }
+            }
+            if (newKey != null) {
+                target.computeIfAbsent(newKey, k -> emptyBucket()).add(number, id);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    /**
+     * Adds newly committed numbers, such as those loaded from an upload.
+     */
+    public void addAll(List<TelephoneNumber> telephoneNumbers) {
+        if (!enabled) {
+            return;
+        }
+        for (TelephoneNumber telephoneNumber : telephoneNumbers) {
+            K key = keyOf(telephoneNumber.getCountryCode(), telephoneNumber.getAreaCode(),
+                    telephoneNumber.getNumberType(), telephoneNumber.getStatus());
+            long number = toLong(telephoneNumber.getNumber());
+            if (key != null && number >= 0) {
+                long id = telephoneNumber.getId();
+                apply(target -> target.computeIfAbsent(key, k -> emptyBucket()).add(number, id));
+            }
+        }
+    }
+
+    private void apply(Consumer<Map<K, NumberBucket>> change) {
+        synchronized (pendingChanges) {
+            change.accept(buckets);
+            if (loading) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    void reload() {
+        synchronized (pendingChanges) {
+            loading = true;
+            pendingChanges.clear();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Map<K, NumberBucket> loaded = load();
+
+            synchronized (pendingChanges) {
+                // The load may have read rows from before these changes committed
+                for (Consumer<Map<K, NumberBucket>> change : pendingChanges) {
+                    change.accept(loaded);
+                }
+                buckets = loaded;
+                ready = true;
+            }
+
+            log.info("Loaded {}: {} buckets in {} ms", name, loaded.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Could not load {}", name, e);
+        } finally {
+            synchronized (pendingChanges) {
+                loading = false;
+                pendingChanges.clear();
+            }
+        }
+    }
+
+    private Map<K, NumberBucket> load() {
+        Map<K, NumberBucket> loaded = new ConcurrentHashMap<>();
+        BucketLoader bucketLoader = new BucketLoader(loaded);
+
+        // Streaming with a fetch size needs a transaction on PostgreSQL, otherwise the driver reads everything
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(loadSql());
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, bucketLoader);
+            return null;
+        });
+        bucketLoader.flush();
+        return loaded;
+    }
+
+    private NumberBucket emptyBucket() {
+        return new NumberBucket(new long[0], new long[0], 0, compactionRatio);
+    }
+
+    /**
+     * Digits of an E.164 number as a long, or -1 if it is not one.
+     */
+    static long toLong(String number) {
+        if (number == null || number.length() < 2 || number.length() > 16 || number.charAt(0) != '+') {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 1; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Collects the rows of one bucket at a time into scratch arrays and turns them into an off-heap
+     * bucket when the next bucket starts.
+     */
+    private final class BucketLoader implements RowCallbackHandler {
+
+        private final Map<K, NumberBucket> target;
+        private K current;
+        private long[] numbers = new long[FETCH_SIZE];
+        private long[] ids = new long[FETCH_SIZE];
+        private int count;
+
+        private BucketLoader(Map<K, NumberBucket> target) {
+            this.target = target;
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            long number = toLong(resultSet.getString("number"));
+            K key = keyOf(resultSet.getString("country_code"), resultSet.getString("area_code"),
+                    resultSet.getString("number_type"), NumberStatus.valueOf(resultSet.getString("status")));
+            if (number < 0 || key == null) {
+                return;
+            }
+
+            if (!key.equals(current)) {
+                flush();
+                current = key;
+            }
+
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            numbers[count] = number;
+            ids[count] = resultSet.getLong("id");
+            count++;
+        }
+
+        private void flush() {
+            if (current != null && count > 0) {
+                target.put(current, new NumberBucket(numbers, ids, count, compactionRatio));
+            }
+            count = 0;
+        }
+    }
+}
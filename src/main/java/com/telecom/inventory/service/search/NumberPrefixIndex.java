@@ -0,0 +1,105 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.model.NumberStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory index of every number, bucketed by country code and status, for number-block questions
+ * such as "which numbers in +1202555 are free". A prefix of d digits covers, for every number length
+ * L from d to 15, the contiguous range [prefix * 10^(L-d), (prefix + 1) * 10^(L-d)) of E.164 longs,
+ * so counting and listing a block are binary searches in the sorted buckets rather than wildcard or
+ * LIKE scans.
+ */
+@Component
+public class NumberPrefixIndex extends NumberIndex<NumberPrefixIndex.BucketKey> {
+
+    // Longest E.164 number, in digits
+    static final int MAX_DIGITS = 15;
+
+    private static final String LOAD_SQL =
+            "SELECT id, number, country_code, area_code, number_type, status FROM telephone_numbers " +
+            "ORDER BY country_code, status, length(number), number";
+
+    @lombok.Value
+    static class BucketKey {
+        String countryCode;
+        NumberStatus status;
+    }
+
+    public NumberPrefixIndex(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                             @Value("${app.search.prefix-index.enabled:true}") boolean enabled,
+                             @Value("${app.search.prefix-index.reload-interval-ms:600000}") long reloadIntervalMillis,
+                             @Value("${app.search.prefix-index.compaction-ratio:0.1}") double compactionRatio) {
+        super("prefix.index", jdbcTemplate, transactionTemplate, meterRegistry, enabled, reloadIntervalMillis,
+                compactionRatio);
+    }
+
+    @Override
+    protected String loadSql() {
+        return LOAD_SQL;
+    }
+
+    @Override
+    protected BucketKey keyOf(String countryCode, String areaCode, String numberType, NumberStatus status) {
+        return status != null ? new BucketKey(countryCode, status) : null;
+    }
+
+    /**
+     * Counts the numbers of the country and status whose digits start with {@code prefix}.
+     */
+    public long count(String countryCode, NumberStatus status, long prefix, int prefixDigits) {
+        NumberBucket bucket = bucket(new BucketKey(countryCode, status));
+        if (bucket == null) {
+            return 0;
+        }
+        
+        long total = 0;
+        long scale = 1;
+        for (int digits = prefixDigits; digits <= MAX_DIGITS; digits++) {
+            total += bucket.count(prefix * scale, (prefix + 1) * scale - 1);
+            scale *= 10;
+        }
+        return total;
+    }
+
+    /**
+     * Copies up to {@code limit} numbers of the country and status starting with {@code prefix}, skipping
+     * the first {@code offset}, shorter numbers first and then in numeric order. Returns the count copied.
+     */
+    public int list(String countryCode, NumberStatus status, long prefix, int prefixDigits, int offset, int limit,
+                    long[] numbers, long[] ids) {
+        NumberBucket bucket = bucket(new BucketKey(countryCode, status));
+        if (bucket == null) {
+            return 0;
+        }
+        
+        int copied = 0;
+        int skip = offset;
+        long scale = 1;
+        for (int digits = prefixDigits; digits <= MAX_DIGITS && copied < limit; digits++) {
+            long from = prefix * scale;
+            long to = (prefix + 1) * scale - 1;
+            scale *= 10;
+            
+            // Whole lengths before the requested page are skipped by their count alone
+            int inRange = bucket.count(from, to);
+            if (skip >= inRange) {
+                skip -= inRange;
+                continue;
+            }
+            
+            long[] pageNumbers = new long[limit - copied];
+            long[] pageIds = new long[limit - copied];
+            int count = bucket.range(from, to, skip, limit - copied, pageNumbers, pageIds);
+            System.arraycopy(pageNumbers, 0, numbers, copied, count);
+            System.arraycopy(pageIds, 0, ids, copied, count);
+            copied += count;
+            skip = 0;
+        }
+        return copied;
+    }
+}
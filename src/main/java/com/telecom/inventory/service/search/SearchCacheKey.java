@@ -0,0 +1,96 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.model.NumberMatch;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.model.VanityPattern;
+import com.telecom.inventory.util.PhoneNumberValidator;
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Search criteria in a canonical form, so requests that run the same query share a cache entry:
+ * defaults are filled in, blank filters dropped, number filters reduced to digits and the order of
+ * vanity patterns ignored.
+ */
+@Value
+class SearchCacheKey {
+
+    NumberStatus status;
+    String numberDigits;
+    NumberMatch numberMatch;
+    String countryCode;
+    String areaCode;
+    String numberType;
+    String category;
+    String features;
+    Set<VanityPattern> patterns;
+    Integer minVanityScore;
+    boolean sortByVanity;
+    int page;
+    int size;
+
+    static SearchCacheKey of(SearchCriteriaDTO criteria) {
+        String number = PhoneNumberValidator.searchTerm(criteria.getNumber());
+        String features = blankToNull(criteria.getFeatures());
+        Set<VanityPattern> patterns = criteria.getPatterns() == null || criteria.getPatterns().isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(criteria.getPatterns()));
+        
+        return new SearchCacheKey(
+                criteria.getStatus() != null ? criteria.getStatus() : NumberStatus.AVAILABLE,
+                number,
+                number == null ? null : criteria.getNumberMatch() != null ? criteria.getNumberMatch() : NumberMatch.CONTAINS,
+                blankToNull(criteria.getCountryCode()),
+                blankToNull(criteria.getAreaCode()),
+                blankToNull(criteria.getNumberType()),
+                blankToNull(criteria.getCategory()),
+                features != null ? features.trim().toLowerCase(Locale.ROOT) : null,
+                patterns,
+                criteria.getMinVanityScore(),
+                Boolean.TRUE.equals(criteria.getSortByVanity()),
+                criteria.getPage() != null ? criteria.getPage() : 0,
+                criteria.getSize() != null ? criteria.getSize() : 20);
+    }
+
+    /**
+     * Whether a number with the given attributes and status could be among the results of this query.
+     * Filters that cannot be checked cheaply (features, vanity) are assumed to match.
+     */
+    boolean mightContain(TelephoneNumber telephoneNumber, NumberStatus numberStatus) {
+        return status == numberStatus
+                && matches(countryCode, telephoneNumber.getCountryCode())
+                && matches(areaCode, telephoneNumber.getAreaCode())
+                && matches(numberType, telephoneNumber.getNumberType())
+                && matches(category, telephoneNumber.getCategory())
+                && matchesNumber(telephoneNumber.getNumber());
+    }
+
+    private boolean matchesNumber(String number) {
+        if (numberDigits == null || number == null) {
+            return true;
+        }
+        String digits = number.replace("+", "");
+        switch (numberMatch) {
+            case PREFIX:
+                return digits.startsWith(numberDigits);
+            case SUFFIX:
+                return digits.endsWith(numberDigits);
+            default:
+                return digits.contains(numberDigits);
+        }
+    }
+
+    private static boolean matches(String filter, String value) {
+        return filter == null || filter.equals(value);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,47 @@
+package com.telecom.inventory.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telecom.inventory.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+/**
+ * Position of a client walking a search result set: the point in time the walk reads from and the sort
+ * values of the last hit it received. Handed to clients as an opaque URL-safe token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String pointInTimeId;
+    private Object[] searchAfter;
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static SearchCursor decode(String token) {
+        SearchCursor cursor;
+        try {
+            cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(token), SearchCursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid search cursor", e);
+        }
+        if (cursor.getPointInTimeId() == null || cursor.getSearchAfter() == null) {
+            throw new InvalidCursorException("Invalid search cursor");
+        }
+        return cursor;
+    }
+}
@@ -3,12 +3,15 @@ package com.telecom.inventory.service.search;
 import com.telecom.inventory.model.TelephoneNumber;
 import com.telecom.inventory.model.TelephoneNumberDocument;
 import com.telecom.inventory.repository.TelephoneNumberSearchRepository;
+import com.telecom.inventory.util.VanityNumberClassifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,11 +39,24 @@ public class SearchIndexService {
         searchRepository.save(document);
     }
 
+    /**
+     * Like {@link #updateTelephoneNumberIndex}, on the task executor, for callers that should not wait
+     * for Elasticsearch. The returned future completes once the document is written and searchable.
+     */
+    @Async
+    public CompletableFuture<Void> updateTelephoneNumberIndexAsync(TelephoneNumber telephoneNumber) {
+        updateTelephoneNumberIndex(telephoneNumber);
+        return CompletableFuture.completedFuture(null);
+    }
+
     public void deleteTelephoneNumberIndex(String id) {
         searchRepository.deleteById(id);
     }
 
     private TelephoneNumberDocument mapToDocument(TelephoneNumber telephoneNumber) {
+        // Classified here so every indexing path, including file ingestion, stores the patterns
+        VanityNumberClassifier.Classification vanity = VanityNumberClassifier.classify(telephoneNumber.getNumber());
+        
         return TelephoneNumberDocument.builder()
                 .id(telephoneNumber.getId().toString())
                 .number(telephoneNumber.getNumber())
@@ -50,6 +66,11 @@ public class SearchIndexService {
                 .category(telephoneNumber.getCategory())
                 .features(telephoneNumber.getFeatures())
                 .status(telephoneNumber.getStatus().name())
+                .patterns(vanity.getPatterns().stream().map(Enum::name).collect(Collectors.toList()))
+                .vanityScore(vanity.getScore())
+                .reservedUntil(telephoneNumber.getReservedUntil())
+                .createdAt(telephoneNumber.getCreatedAt())
+                .updatedAt(telephoneNumber.getUpdatedAt())
                 .build();
     }
 }
@@ -0,0 +1,74 @@
+package com.telecom.inventory.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of search result pages, keyed on normalized criteria. Entries expire after
+ * a short time, so numbers added by file ingestion show up without explicit invalidation; status
+ * changes evict exactly the entries whose criteria could include the changed number, so a reserved
+ * number does not linger in cached AVAILABLE results. Hit, miss and eviction counts are published
+ * as {@code cache.*} metrics with the tag {@code cache=search.results}.
+ */
+@Component
+@Slf4j
+public class SearchResultCache {
+
+    private final Cache<SearchCacheKey, List<TelephoneNumberDTO>> cache;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${app.search.cache.maximum-size:1000}") long maximumSize,
+                             @Value("${app.search.cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.results");
+    }
+
+    /**
+     * Returns the cached results for the criteria, running the search on a miss. Concurrent misses for
+     * the same criteria run the search once.
+     */
+    public List<TelephoneNumberDTO> get(SearchCriteriaDTO criteria, Function<SearchCriteriaDTO, List<TelephoneNumberDTO>> search) {
+        return cache.get(SearchCacheKey.of(criteria), key -> Collections.unmodifiableList(search.apply(criteria)));
+    }
+
+    /**
+     * Evicts the entries that could list the number before or after its status changed from
+     * {@code oldStatus}. Within a transaction the entries are evicted again after commit, so a search
+     * running in between cannot keep the old state cached.
+     */
+    public void invalidate(TelephoneNumber telephoneNumber, NumberStatus oldStatus) {
+        NumberStatus newStatus = telephoneNumber.getStatus();
+        Runnable eviction = () -> cache.asMap().keySet().removeIf(key ->
+                key.mightContain(telephoneNumber, oldStatus) || key.mightContain(telephoneNumber, newStatus));
+        
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
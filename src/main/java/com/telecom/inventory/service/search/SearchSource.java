@@ -0,0 +1,6 @@
+package com.telecom.inventory.service.search;
+
+public enum SearchSource {
+    INDEX,
+    DATABASE
+}
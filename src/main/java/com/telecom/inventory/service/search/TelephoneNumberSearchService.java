@@ -1,28 +1,71 @@
 package com.telecom.inventory.service.search;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telecom.inventory.dto.InventoryFacetsDTO;
+import com.telecom.inventory.dto.NumberBlockDTO;
+import com.telecom.inventory.dto.NumberLookupDTO;
 import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.dto.SearchPageDTO;
 import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.exception.InvalidRequestException;
+import com.telecom.inventory.model.NumberMatch;
 import com.telecom.inventory.model.NumberStatus;
 import com.telecom.inventory.model.TelephoneNumber;
 import com.telecom.inventory.model.TelephoneNumberDocument;
+import com.telecom.inventory.model.VanityPattern;
+import com.telecom.inventory.repository.NumberStatusView;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
 import com.telecom.inventory.repository.TelephoneNumberSearchRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.util.PhoneNumberValidator;
+import com.telecom.inventory.util.VanityNumberClassifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchAggregations;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,29 +73,367 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TelephoneNumberSearchService {
 
+    // Shortest n-gram indexed in number.contains, see elasticsearch/telephone-number-settings.json
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
+    // Keyword fields counted by getFacets
+    private static final List<String> FACETS = List.of("status", "countryCode", "areaCode", "numberType", "category");
+
     private final TelephoneNumberSearchRepository searchRepository;
     private final TelephoneNumberRepository telephoneNumberRepository;
     private final ElasticsearchOperations elasticsearchOperations;
+    private final RestHighLevelClient elasticsearchClient;
+    private final ObjectMapper objectMapper;
+    private final SearchResultCache searchResultCache;
+    private final AvailabilityIndex availabilityIndex;
+    private final NumberPrefixIndex numberPrefixIndex;
+    private final StageMetrics stageMetrics;
+
+    @Value("${app.search.source:INDEX}")
+    private SearchSource searchSource;
+
+    @Value("${app.elasticsearch.index-name}")
+    private String indexName;
+
+    @Value("${app.search.point-in-time-keep-alive:2m}")
+    private Duration pointInTimeKeepAlive;
 
+    @Value("${app.search.export-batch-size:1000}")
+    private int exportBatchSize;
+
+    @Value("${app.search.facet-size:100}")
+    private int facetSize;
+
+    @Value("${app.search.lookup-batch-size:1000}")
+    private int lookupBatchSize;
+
+    /**
+     * Searches the index. Results are built from the indexed documents, so browsing does not touch the
+     * database; they may trail the database by the indexing delay, which is fine because a number's
+     * status is re-checked under a row lock when it is reserved. Pages are served from the
+     * {@link SearchResultCache} when the same query ran recently. Browsing the available numbers of one
+     * country, area and type is paged through the in-memory {@link AvailabilityIndex} instead, with the
+     * page's rows then loaded by primary key so results have all of their fields.
+     */
     public List<TelephoneNumberDTO> searchTelephoneNumbers(SearchCriteriaDTO criteria) {
-        // Default to AVAILABLE status if not specified
-        if (criteria.getStatus() == null) {
-            criteria.setStatus(NumberStatus.AVAILABLE);
+        if (availabilityIndex.canAnswer(criteria)) {
+            List<Long> ids = stageMetrics.time("search", "memory.index", () -> availabilityIndex.searchIds(criteria));
+            // Numbers reserved since the index last saw them are left out of the page
+            return fetchInOrder(ids).stream()
+                    .filter(telephoneNumber -> telephoneNumber.getStatus() == NumberStatus.AVAILABLE)
+                    .map(this::mapToDTO)
+                    .collect(Collectors.toList());
         }
-        
+        return searchResultCache.get(criteria, this::search);
+    }
+
+    private List<TelephoneNumberDTO> search(SearchCriteriaDTO criteria) {
         // Default pagination
         int page = criteria.getPage() != null ? criteria.getPage() : 0;
         int size = criteria.getSize() != null ? criteria.getSize() : 20;
         
         // Build the query
+        BoolQueryBuilder queryBuilder = buildQuery(criteria);
+        
+        // Create the search query
+        NativeSearchQueryBuilder searchQueryBuilder = new NativeSearchQueryBuilder()
+                .withQuery(queryBuilder)
+                .withPageable(PageRequest.of(page, size));
+        if (Boolean.TRUE.equals(criteria.getSortByVanity())) {
+            searchQueryBuilder
+                    .withSorts(SortBuilders.fieldSort("vanityScore").order(SortOrder.DESC))
+                    .withSorts(SortBuilders.fieldSort("number").order(SortOrder.ASC));
+        }
+        NativeSearchQuery searchQuery = searchQueryBuilder.build();
+        
+        // Execute the search
+        SearchHits<TelephoneNumberDocument> searchHits = stageMetrics.time("search", "es.query",
+                () -> elasticsearchOperations.search(searchQuery, TelephoneNumberDocument.class));
+        
+        if (searchSource == SearchSource.INDEX) {
+            return searchHits.getSearchHits().stream()
+                    .map(SearchHit::getContent)
+                    .map(this::mapToDTO)
+                    .collect(Collectors.toList());
+        }
+        
+        // Extract IDs from search results
+        List<Long> ids = searchHits.getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .map(doc -> Long.parseLong(doc.getId()))
+                .collect(Collectors.toList());
+        
+        // Map to DTOs
+        return fetchInOrder(ids).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Loads the entities of the ids from the database, keeping the order of the ids
+    private List<TelephoneNumber> fetchInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<Long, TelephoneNumber> telephoneNumbers = stageMetrics.time("search", "db.fetch",
+                () -> telephoneNumberRepository.findAllById(ids)).stream()
+                .collect(Collectors.toMap(TelephoneNumber::getId, Function.identity()));
+        
+        return ids.stream()
+                .map(telephoneNumbers::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns one page of the numbers matching the criteria, ordered by number. Pass the returned cursor
+     * back to get the next page; the first call opens a point in time, so the walk sees the index as it
+     * was then and pages stay consistent while numbers are reserved in the meantime. Unlike page/size
+     * paging, each page costs the same however deep the walk goes. A cursor expires when it is not used
+     * within the point in time keep-alive.
+     */
+    public SearchPageDTO searchPage(SearchCriteriaDTO criteria, String cursor) {
+        int size = criteria.getSize() != null ? criteria.getSize() : 20;
+        SearchCursor position = cursor != null && !cursor.isEmpty() ? SearchCursor.decode(cursor) : null;
+        
+        try {
+            String pointInTimeId = position != null ? position.getPointInTimeId() : openPointInTime();
+            SearchResponse response = searchAfter("search.page", buildQuery(criteria), Boolean.TRUE.equals(criteria.getSortByVanity()),
+                    pointInTimeId, position != null ? position.getSearchAfter() : null, size);
+            org.elasticsearch.search.SearchHit[] hits = response.getHits().getHits();
+            
+            String nextCursor = null;
+            if (hits.length < size) {
+                // Last page, nothing will read from the point in time any more
+                closePointInTime(response.pointInTimeId());
+            } else {
+                nextCursor = new SearchCursor(response.pointInTimeId(), hits[hits.length - 1].getSortValues()).encode();
+            }
+            
+            return SearchPageDTO.builder()
+                    .results(mapHits(hits))
+                    .cursor(nextCursor)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Search failed", e);
+        }
+    }
+
+    /**
+     * Writes every number matching the criteria to the stream as newline-delimited JSON, walking the
+     * result set page by page from a point in time so memory use does not depend on its size.
+     */
+    public void exportTelephoneNumbers(SearchCriteriaDTO criteria, OutputStream outputStream) throws IOException {
+        BoolQueryBuilder query = buildQuery(criteria);
+        boolean byVanity = Boolean.TRUE.equals(criteria.getSortByVanity());
+        String pointInTimeId = openPointInTime();
+        long exported = 0;
+        
+        try {
+            Object[] searchAfter = null;
+            while (true) {
+                SearchResponse response = searchAfter("export", query, byVanity, pointInTimeId, searchAfter, exportBatchSize);
+                pointInTimeId = response.pointInTimeId();
+                org.elasticsearch.search.SearchHit[] hits = response.getHits().getHits();
+                
+                for (TelephoneNumberDTO telephoneNumber : mapHits(hits)) {
+                    outputStream.write(objectMapper.writeValueAsBytes(telephoneNumber));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+                exported += hits.length;
+                
+                if (hits.length < exportBatchSize) {
+                    break;
+                }
+                searchAfter = hits[hits.length - 1].getSortValues();
+            }
+        } finally {
+            closePointInTime(pointInTimeId);
+        }
+        
+        log.info("Exported {} telephone numbers", exported);
+    }
+
+    /**
+     * Counts the numbers matching the criteria per status, country code, area code, number type and
+     * category with terms aggregations in a single request that returns no hits. Unlike search, the
+     * status is not defaulted to AVAILABLE, so without a status filter every status is counted.
+     */
+    public InventoryFacetsDTO getFacets(SearchCriteriaDTO criteria) {
+        NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
+                .withQuery(filterQuery(criteria))
+                .withTrackTotalHits(true);
+        for (String facet : FACETS) {
+            queryBuilder.withAggregations(AggregationBuilders.terms(facet).field(facet).size(facetSize));
+        }
+        NativeSearchQuery query = queryBuilder.build();
+        query.setMaxResults(0);
+        
+        SearchHits<TelephoneNumberDocument> searchHits = stageMetrics.time("facets", "es.query",
+                () -> elasticsearchOperations.search(query, TelephoneNumberDocument.class));
+        Aggregations aggregations = searchHits.hasAggregations()
+                ? ((ElasticsearchAggregations) searchHits.getAggregations()).aggregations()
+                : null;
+        
+        return InventoryFacetsDTO.builder()
+                .total(searchHits.getTotalHits())
+                .status(bucketCounts(aggregations, "status"))
+                .countryCode(bucketCounts(aggregations, "countryCode"))
+                .areaCode(bucketCounts(aggregations, "areaCode"))
+                .numberType(bucketCounts(aggregations, "numberType"))
+                .category(bucketCounts(aggregations, "category"))
+                .build();
+    }
+
+    /**
+     * Lists the numbers of a country with the given status (AVAILABLE by default) whose E.164 form starts
+     * with {@code prefix}, with their total. Answered from the {@link NumberPrefixIndex} once it is loaded,
+     * otherwise from the prefix sub-field of the search index.
+     */
+    public NumberBlockDTO searchByPrefix(String countryCode, String prefix, NumberStatus status, Integer page, Integer size) {
+        NumberStatus blockStatus = status != null ? status : NumberStatus.AVAILABLE;
+        int pageNumber = page != null ? page : 0;
+        int pageSize = size != null ? size : 20;
+        // The same bounds SearchCriteriaDTO enforces on the other search endpoints
+        if (pageNumber < 0) {
+            throw new InvalidRequestException("Page must not be negative");
+        }
+        if (pageSize < 1 || pageSize > 1000) {
+            throw new InvalidRequestException("Size must be between 1 and 1000");
+        }
+        
+        String digits = prefix != null ? prefix.replaceAll("[^0-9]", "") : "";
+        if (digits.isEmpty() || digits.length() > NumberPrefixIndex.MAX_DIGITS) {
+            throw new InvalidRequestException("Prefix must have between 1 and " + NumberPrefixIndex.MAX_DIGITS + " digits");
+        }
+        // E.164 numbers never start with 0, and the index compares prefixes as longs, which would drop it
+        if (digits.charAt(0) == '0') {
+            throw new InvalidRequestException("Prefix must not start with 0");
+        }
+        
+        NumberBlockDTO.NumberBlockDTOBuilder block = NumberBlockDTO.builder()
+                .prefix("+" + digits)
+                .countryCode(countryCode)
+                .status(blockStatus);
+        
+        if (!numberPrefixIndex.isReady()) {
+            SearchCriteriaDTO criteria = SearchCriteriaDTO.builder()
+                    .number(digits)
+                    .numberMatch(NumberMatch.PREFIX)
+                    .countryCode(countryCode)
+                    .status(blockStatus)
+                    .page(pageNumber)
+                    .size(pageSize)
+                    .build();
+            NativeSearchQuery countQuery = new NativeSearchQueryBuilder().withQuery(filterQuery(criteria)).build();
+            long total = stageMetrics.time("prefix", "es.query",
+                    () -> elasticsearchOperations.count(countQuery, TelephoneNumberDocument.class));
+            return block.total(total).numbers(search(criteria)).build();
+        }
+        
+        long value = Long.parseLong(digits);
+        long[] numbers = new long[pageSize];
+        long[] ids = new long[pageSize];
+        // A page beyond the last int offset cannot hold any number
+        long offset = (long) pageNumber * pageSize;
+        int count = offset > Integer.MAX_VALUE ? 0 : stageMetrics.time("prefix", "memory.index", () -> numberPrefixIndex.list(
+                countryCode, blockStatus, value, digits.length(), (int) offset, pageSize, numbers, ids));
+        
+        // The index only holds ids; load the rows so the response matches the Elasticsearch fallback,
+        // dropping numbers whose status changed since they were indexed
+        List<Long> pageIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pageIds.add(ids[i]);
+        }
+        List<TelephoneNumberDTO> results = fetchInOrder(pageIds).stream()
+                .filter(telephoneNumber -> telephoneNumber.getStatus() == blockStatus)
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        return block
+                .total(numberPrefixIndex.count(countryCode, blockStatus, value, digits.length()))
+                .numbers(results)
+                .build();
+    }
+
+    /**
+     * Writes the status of each number as one JSON line, in request order. Numbers are normalized and
+     * resolved {@code lookupBatchSize} at a time with a single IN query per batch, and each batch is
+     * flushed before the next one is read, so large lookups stream rather than build up in memory.
+     */
+    public void lookupNumbers(List<String> numbers, OutputStream outputStream) throws IOException {
+        long found = 0;
+        
+        for (int start = 0; start < numbers.size(); start += lookupBatchSize) {
+            List<String> batch = numbers.subList(start, Math.min(start + lookupBatchSize, numbers.size()));
+            String[] normalized = new String[batch.size()];
+            Set<String> distinct = new HashSet<>();
+            for (int i = 0; i < normalized.length; i++) {
+                String number = batch.get(i);
+                normalized[i] = number != null ? PhoneNumberValidator.normalizePhoneNumber(number.trim()) : null;
+                if (normalized[i] != null && !normalized[i].isEmpty()) {
+                    distinct.add(normalized[i]);
+                }
+            }
+            
+            Map<String, NumberStatusView> byNumber = new HashMap<>();
+            if (!distinct.isEmpty()) {
+                for (NumberStatusView view : stageMetrics.time("lookup", "db.fetch",
+                        () -> telephoneNumberRepository.findStatusByNumberIn(distinct))) {
+                    byNumber.put(view.getNumber(), view);
+                }
+            }
+            
+            for (int i = 0; i < normalized.length; i++) {
+                NumberStatusView view = normalized[i] != null ? byNumber.get(normalized[i]) : null;
+                NumberLookupDTO result = NumberLookupDTO.builder()
+                        .number(batch.get(i))
+                        .found(view != null)
+                        .id(view != null ? view.getId() : null)
+                        .status(view != null ? view.getStatus() : null)
+                        .build();
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+                found += view != null ? 1 : 0;
+            }
+            outputStream.flush();
+        }
+        
+        log.info("Looked up {} telephone numbers, {} found", numbers.size(), found);
+    }
+
+    public TelephoneNumberDTO getTelephoneNumberById(Long id) {
+        Optional<TelephoneNumber> telephoneNumberOpt = telephoneNumberRepository.findById(id);
+        return telephoneNumberOpt.map(this::mapToDTO).orElse(null);
+    }
+
+    public TelephoneNumberDTO getTelephoneNumberByNumber(String number) {
+        Optional<TelephoneNumber> telephoneNumberOpt = telephoneNumberRepository.findByNumber(
+                PhoneNumberValidator.normalizePhoneNumber(number));
+        return telephoneNumberOpt.map(this::mapToDTO).orElse(null);
+    }
+
+    private BoolQueryBuilder buildQuery(SearchCriteriaDTO criteria) {
+        // Default to AVAILABLE status if not specified
+        if (criteria.getStatus() == null) {
+            criteria.setStatus(NumberStatus.AVAILABLE);
+        }
+        return filterQuery(criteria);
+    }
+
+    private BoolQueryBuilder filterQuery(SearchCriteriaDTO criteria) {
         BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
         
-        // Add status filter (always required)
-        queryBuilder.must(QueryBuilders.termQuery("status", criteria.getStatus().name()));
+        if (criteria.getStatus() != null) {
+            queryBuilder.must(QueryBuilders.termQuery("status", criteria.getStatus().name()));
+        }
         
         // Add optional filters
-        if (criteria.getNumber() != null && !criteria.getNumber().isEmpty()) {
-            queryBuilder.must(QueryBuilders.wildcardQuery("number", "*" + criteria.getNumber() + "*"));
+        // Input made of separators only leaves no digits to match, so it is no criterion at all
+        String digits = PhoneNumberValidator.searchTerm(criteria.getNumber());
+        if (digits != null) {
+            queryBuilder.must(numberQuery(digits,
+                    criteria.getNumberMatch() != null ? criteria.getNumberMatch() : NumberMatch.CONTAINS));
         }
         
         if (criteria.getCountryCode() != null && !criteria.getCountryCode().isEmpty()) {
@@ -75,45 +456,121 @@ public class TelephoneNumberSearchService {
             queryBuilder.must(QueryBuilders.matchQuery("features", criteria.getFeatures()));
         }
         
-        // Create the search query
-        NativeSearchQuery searchQuery = new NativeSearchQueryBuilder()
-                .withQuery(queryBuilder)
-                .withPageable(PageRequest.of(page, size))
-                .build();
-        
-        // Execute the search
-        SearchHits<TelephoneNumberDocument> searchHits = elasticsearchOperations.search(searchQuery, TelephoneNumberDocument.class);
-        
-        // Extract IDs from search results
-        List<Long> ids = searchHits.getSearchHits().stream()
-                .map(SearchHit::getContent)
-                .map(doc -> Long.parseLong(doc.getId()))
-                .collect(Collectors.toList());
-        
-        if (ids.isEmpty()) {
-            return new ArrayList<>();
+        // Vanity patterns are classified at index time, so these are plain term and range lookups
+        if (criteria.getPatterns() != null) {
+            for (VanityPattern pattern : criteria.getPatterns()) {
+                queryBuilder.filter(QueryBuilders.termQuery("patterns", pattern.name()));
+            }
         }
         
-        // Fetch the actual entities from the database
-        List<TelephoneNumber> telephoneNumbers = telephoneNumberRepository.findAllById(ids);
+        if (criteria.getMinVanityScore() != null) {
+            queryBuilder.filter(QueryBuilders.rangeQuery("vanityScore").gte(criteria.getMinVanityScore()));
+        }
         
-        // Map to DTOs
-        return telephoneNumbers.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return queryBuilder;
     }
 
-    public TelephoneNumberDTO getTelephoneNumberById(Long id) {
-        Optional<TelephoneNumber> telephoneNumberOpt = telephoneNumberRepository.findById(id);
-        return telephoneNumberOpt.map(this::mapToDTO).orElse(null);
+    /**
+     * Matches part of a number against the analyzed sub-fields of {@code number}: every digit sequence of
+     * {@value #MIN_CONTAINS_LENGTH} to 15 digits, every prefix and every suffix of a number is indexed
+     * as a term, so each strategy is a single term lookup.
+     */
+    private QueryBuilder numberQuery(String digits, NumberMatch match) {
+        switch (match) {
+            case PREFIX:
+                return QueryBuilders.termQuery("number.prefix", digits);
+            case SUFFIX:
+                return QueryBuilders.termQuery("number.suffix", new StringBuilder(digits).reverse().toString());
+            default:
+                if (digits.length() < MIN_CONTAINS_LENGTH) {
+                    // Too short to be an indexed n-gram, and matches most numbers anyway
+                    return QueryBuilders.wildcardQuery("number", "*" + digits + "*");
+                }
+                return QueryBuilders.termQuery("number.contains", digits);
+        }
     }
 
-    public TelephoneNumberDTO getTelephoneNumberByNumber(String number) {
-        Optional<TelephoneNumber> telephoneNumberOpt = telephoneNumberRepository.findByNumber(number);
-        return telephoneNumberOpt.map(this::mapToDTO).orElse(null);
+    private static Map<String, Long> bucketCounts(Aggregations aggregations, String facet) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (aggregations != null) {
+            Terms terms = aggregations.get(facet);
+            for (Terms.Bucket bucket : terms.getBuckets()) {
+                counts.put(bucket.getKeyAsString(), bucket.getDocCount());
+            }
+        }
+        return counts;
+    }
+
+    private String openPointInTime() throws IOException {
+        OpenPointInTimeRequest request = new OpenPointInTimeRequest(indexName)
+                .keepAlive(TimeValue.timeValueMillis(pointInTimeKeepAlive.toMillis()));
+        return elasticsearchClient.openPointInTime(request, RequestOptions.DEFAULT).getPointInTimeId();
+    }
+
+    private void closePointInTime(String pointInTimeId) {
+        try {
+            elasticsearchClient.closePointInTime(new ClosePointInTimeRequest(pointInTimeId), RequestOptions.DEFAULT);
+        } catch (IOException | RuntimeException e) {
+            // It expires after the keep-alive anyway
+            log.warn("Could not close point in time", e);
+        }
+    }
+
+    private SearchResponse searchAfter(String operation, BoolQueryBuilder query, boolean byVanity, String pointInTimeId,
+                                       Object[] searchAfter, int size) throws IOException {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(query)
+                .size(size);
+        if (byVanity) {
+            source.sort("vanityScore", SortOrder.DESC);
+        }
+        // Numbers are unique, so they order hits totally and every hit has a distinct position
+        source.sort("number", SortOrder.ASC)
+                .trackTotalHits(false)
+                .pointInTimeBuilder(new PointInTimeBuilder(pointInTimeId)
+                        .setKeepAlive(TimeValue.timeValueMillis(pointInTimeKeepAlive.toMillis())));
+        if (searchAfter != null) {
+            source.searchAfter(searchAfter);
+        }
+        // A search against a point in time must not name an index
+        return stageMetrics.time(operation, "es.query",
+                () -> elasticsearchClient.search(new SearchRequest().source(source), RequestOptions.DEFAULT));
+    }
+
+    private List<TelephoneNumberDTO> mapHits(org.elasticsearch.search.SearchHit[] hits) {
+        ElasticsearchConverter converter = elasticsearchOperations.getElasticsearchConverter();
+        List<TelephoneNumberDTO> results = new ArrayList<>(hits.length);
+        for (org.elasticsearch.search.SearchHit hit : hits) {
+            Document source = Document.from(hit.getSourceAsMap());
+            source.setId(hit.getId());
+            results.add(mapToDTO(converter.read(TelephoneNumberDocument.class, source)));
+        }
+        return results;
+    }
+
+    private TelephoneNumberDTO mapToDTO(TelephoneNumberDocument document) {
+        return TelephoneNumberDTO.builder()
+                .id(Long.parseLong(document.getId()))
+                .number(document.getNumber())
+                .countryCode(document.getCountryCode())
+                .areaCode(document.getAreaCode())
+                .numberType(document.getNumberType())
+                .category(document.getCategory())
+                .features(document.getFeatures())
+                .status(document.getStatus() != null ? NumberStatus.valueOf(document.getStatus()) : null)
+                .patterns(document.getPatterns() != null
+                        ? document.getPatterns().stream().map(VanityPattern::valueOf).collect(Collectors.toCollection(
+                                () -> EnumSet.noneOf(VanityPattern.class)))
+                        : null)
+                .vanityScore(document.getVanityScore())
+                .reservedUntil(document.getReservedUntil())
+                .createdAt(document.getCreatedAt())
+                .updatedAt(document.getUpdatedAt())
+                .build();
     }
 
     private TelephoneNumberDTO mapToDTO(TelephoneNumber telephoneNumber) {
+        VanityNumberClassifier.Classification vanity = VanityNumberClassifier.classify(telephoneNumber.getNumber());
         return TelephoneNumberDTO.builder()
                 .id(telephoneNumber.getId())
                 .number(telephoneNumber.getNumber())
@@ -123,6 +580,8 @@ public class TelephoneNumberSearchService {
                 .category(telephoneNumber.getCategory())
                 .features(telephoneNumber.getFeatures())
                 .status(telephoneNumber.getStatus())
+                .patterns(vanity.getPatterns())
+                .vanityScore(vanity.getScore())
                 .reservedUntil(telephoneNumber.getReservedUntil())
                 .createdAt(telephoneNumber.getCreatedAt())
                 .updatedAt(telephoneNumber.getUpdatedAt())
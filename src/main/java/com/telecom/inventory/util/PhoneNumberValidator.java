@@ -1,36 +1,216 @@
 package com.telecom.inventory.util;
 
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
+/**
+ * Phone number validation and E.164 normalization. Numbers are checked by scanning their characters
+ * instead of running a regular expression, and the {@link CharSequence} variants write into a caller
+ * supplied buffer, so validating a row allocates nothing.
+ */
 public class PhoneNumberValidator {
 
-    private static final Pattern PHONE_NUMBER_PATTERN = Pattern.compile("^\\+?[0-9]{10,15}$");
+    // E.164 caps a number at 15 digits, country code included
+    public static final int MAX_DIGITS = 15;
+
+    // Longest normalized number: '+' followed by 15 digits
+    public static final int MAX_LENGTH = MAX_DIGITS + 1;
+
+    private static final int MIN_DIGITS = 10;
+    private static final int MIN_E164_DIGITS = 8;
+
+    // North American Numbering Plan numbers always have a 10 digit national number after the '1'
+    private static final int NANP_DIGITS = 11;
+
+    // Length of the country calling code, indexed by the first two digits of the number (ITU-T E.164 assignments)
+    private static final byte[] COUNTRY_CODE_LENGTH = new byte[100];
+
+    static {
+        Arrays.fill(COUNTRY_CODE_LENGTH, (byte) 3);
+        for (int i = 10; i < 20; i++) {
+            COUNTRY_CODE_LENGTH[i] = 1;
+        }
+        for (int i = 70; i < 80; i++) {
+            COUNTRY_CODE_LENGTH[i] = 1;
+        }
+        int[] twoDigitCodes = {20, 27, 30, 31, 32, 33, 34, 36, 39, 40, 41, 43, 44, 45, 46, 47, 48, 49,
+                51, 52, 53, 54, 55, 56, 57, 58, 60, 61, 62, 63, 64, 65, 66, 81, 82, 84, 86,
+                90, 91, 92, 93, 94, 95, 98};
+        for (int code : twoDigitCodes) {
+            COUNTRY_CODE_LENGTH[code] = 2;
+        }
+    }
     
     private PhoneNumberValidator() {
         // Private constructor to prevent instantiation
     }
     
-    public static boolean isValidPhoneNumber(String phoneNumber) {
-        if (phoneNumber == null || phoneNumber.isEmpty()) {
+    /**
+     * Accepts 10 to 15 digits with an optional leading '+'.
+     */
+    public static boolean isValidPhoneNumber(CharSequence phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() == 0) {
+            return false;
+        }
+        
+        int start = phoneNumber.charAt(0) == '+' ? 1 : 0;
+        int digits = phoneNumber.length() - start;
+        return digits >= MIN_DIGITS && digits <= MAX_DIGITS && isDigits(phoneNumber, start);
+    }
+
+    /**
+     * Checks a normalized number ('+' followed by digits) against the E.164 rules: a country code of
+     * the length assigned to its leading digits, at most 15 digits in total, and, when given, a country
+     * code column (with or without '+') equal to the number's own country code.
+     */
+    public static boolean isValidE164(CharSequence number, CharSequence countryCode) {
+        if (number == null || number.length() < MIN_E164_DIGITS + 1 || number.length() > MAX_LENGTH
+                || number.charAt(0) != '+' || !isDigits(number, 1)) {
+            return false;
+        }
+        
+        int codeLength = countryCodeLength(number);
+        if (codeLength < 0) {
+            return false;
+        }
+        if (codeLength == 1 && number.charAt(1) == '1' && number.length() - 1 != NANP_DIGITS) {
             return false;
         }
         
-        return PHONE_NUMBER_PATTERN.matcher(phoneNumber).matches();
+        if (countryCode == null || countryCode.length() == 0) {
+            return true;
+        }
+        
+        int codeStart = countryCode.charAt(0) == '+' ? 1 : 0;
+        if (countryCode.length() - codeStart != codeLength) {
+            return false;
+        }
+        for (int i = 0; i < codeLength; i++) {
+            if (countryCode.charAt(codeStart + i) != number.charAt(1 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the country calling code of a normalized number, or -1 if it cannot have one.
+     */
+    public static int countryCodeLength(CharSequence number) {
+        if (number.length() < 3 || number.charAt(1) == '0') {
+            return -1;
+        }
+        int firstTwo = (number.charAt(1) - '0') * 10 + (number.charAt(2) - '0');
+        return COUNTRY_CODE_LENGTH[firstTwo];
+    }
+
+    /**
+     * Writes the E.164 form of a number into {@code out}: separators people type (spaces, '-', '.',
+     * '(', ')', '/') are dropped, a leading "00" international prefix becomes '+', and '+' is added when
+     * missing. Returns the number of characters written, or -1 when the input contains anything else or
+     * has more than 15 digits. {@code out} must hold at least {@link #MAX_LENGTH} characters.
+     */
+    public static int normalize(CharSequence input, char[] out) {
+        int length = input.length();
+        int i = 0;
+        while (i < length && input.charAt(i) == ' ') {
+            i++;
+        }
+        while (length > i && input.charAt(length - 1) == ' ') {
+            length--;
+        }
+        
+        if (i < length && input.charAt(i) == '+') {
+            i++;
+        } else if (i + 1 < length && input.charAt(i) == '0' && input.charAt(i + 1) == '0') {
+            i += 2;
+        }
+        
+        out[0] = '+';
+        int size = 1;
+        for (; i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (size == MAX_LENGTH) {
+                    return -1;
+                }
+                out[size++] = c;
+            } else if (!isSeparator(c)) {
+                return -1;
+            }
+        }
+        return size > 1 ? size : -1;
     }
     
+    /**
+     * Returns the E.164 form of a number, the same instance when it is already normalized, or the input
+     * unchanged when it is not a phone number.
+     */
     public static String normalizePhoneNumber(String phoneNumber) {
         if (phoneNumber == null || phoneNumber.isEmpty()) {
             return phoneNumber;
         }
         
-        // Remove all non-digit characters except the leading '+'
-        String normalized = phoneNumber.replaceAll("[^\\d+]", "");
+        if (phoneNumber.charAt(0) == '+' && phoneNumber.length() > 1 && phoneNumber.length() <= MAX_LENGTH
+                && isDigits(phoneNumber, 1)) {
+            return phoneNumber;
+        }
+        
+        char[] out = new char[MAX_LENGTH];
+        int length = normalize(phoneNumber, out);
+        return length > 0 ? new String(out, 0, length) : phoneNumber;
+    }
+
+    /**
+     * Drops separator characters from a partial number typed into a search, keeping everything else.
+     * Returns the same instance when there is nothing to drop.
+     */
+    public static String stripSeparators(String input) {
+        if (input == null) {
+            return null;
+        }
         
-        // Ensure it starts with '+'
-        if (!normalized.startsWith("+")) {
-            normalized = "+" + normalized;
+        int first = 0;
+        while (first < input.length() && !isSeparator(input.charAt(first))) {
+            first++;
+        }
+        if (first == input.length()) {
+            return input;
         }
         
-        return normalized;
+        StringBuilder stripped = new StringBuilder(input.length()).append(input, 0, first);
+        for (int i = first + 1; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (!isSeparator(c)) {
+                stripped.append(c);
+            }
+        }
+        return stripped.toString();
+    }
+
+    /**
+     * The part of a number typed into a search that is matched against the digits of numbers, without
+     * separators and plus sign. Returns null when nothing is left, as for "--", so callers drop the
+     * criterion rather than match every number with an empty term.
+     */
+    public static String searchTerm(String input) {
+        if (input == null) {
+            return null;
+        }
+        String term = stripSeparators(input).replace("+", "");
+        return term.isEmpty() ? null : term;
+    }
+
+    private static boolean isDigits(CharSequence value, int from) {
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '(' || c == ')' || c == '/';
     }
 }
@@ -0,0 +1,161 @@
+package com.telecom.inventory.util;
+
+import com.telecom.inventory.model.VanityPattern;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Finds memorable ("golden") patterns in the local part of a number and rates how desirable it is, so
+ * the result can be indexed once and searched with term and range queries instead of wildcard scans.
+ * Only the last {@value #LOCAL_DIGITS} digits are looked at: country and area codes are shared by every
+ * number of a block and do not make one number easier to remember than its neighbours.
+ */
+public class VanityNumberClassifier {
+
+    // Subscriber part of a number, the digits a customer actually chooses between
+    public static final int LOCAL_DIGITS = 7;
+
+    public static final int MAX_SCORE = 100;
+
+    private static final int MIN_RUN = 4;
+    private static final int MIN_MIRROR = 4;
+    private static final int MIN_ZEROS = 2;
+
+    public static final class Classification {
+
+        private static final Classification NONE = new Classification(Collections.emptySet(), 0);
+
+        private final Set<VanityPattern> patterns;
+        private final int score;
+
+        private Classification(Set<VanityPattern> patterns, int score) {
+            this.patterns = patterns;
+            this.score = score;
+        }
+
+        public Set<VanityPattern> getPatterns() {
+            return patterns;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private VanityNumberClassifier() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static Classification classify(String number) {
+        if (number == null) {
+            return Classification.NONE;
+        }
+        
+        // Collect the last LOCAL_DIGITS digits, skipping '+' and separators
+        int[] digits = new int[LOCAL_DIGITS];
+        int length = 0;
+        for (int i = number.length() - 1; i >= 0 && length < LOCAL_DIGITS; i--) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits[LOCAL_DIGITS - 1 - length++] = c - '0';
+            }
+        }
+        if (length < MIN_RUN) {
+            return Classification.NONE;
+        }
+        int from = LOCAL_DIGITS - length;
+        
+        Set<VanityPattern> patterns = EnumSet.noneOf(VanityPattern.class);
+        int score = 0;
+        
+        int repeat = longestRun(digits, from, 0);
+        if (repeat >= MIN_RUN) {
+            patterns.add(VanityPattern.REPEATING);
+            score += (repeat - 2) * 15;
+        }
+        
+        int ascending = longestRun(digits, from, 1);
+        if (ascending >= MIN_RUN) {
+            patterns.add(VanityPattern.ASCENDING);
+            score += (ascending - 3) * 12;
+        }
+        
+        int descending = longestRun(digits, from, -1);
+        if (descending >= MIN_RUN) {
+            patterns.add(VanityPattern.DESCENDING);
+            score += (descending - 3) * 12;
+        }
+        
+        // A run of one digit is trivially a palindrome too; it already scores as REPEATING
+        int mirror = longestTrailingPalindrome(digits, from);
+        if (mirror >= MIN_MIRROR && mirror > repeat) {
+            patterns.add(VanityPattern.MIRROR);
+            score += mirror * 5;
+        }
+        
+        int pairs = trailingPairs(digits, from);
+        if (pairs >= 2) {
+            patterns.add(VanityPattern.PAIRS);
+            score += (pairs - 1) * 15;
+        }
+        
+        int zeros = 0;
+        while (zeros < length && digits[LOCAL_DIGITS - 1 - zeros] == 0) {
+            zeros++;
+        }
+        if (zeros >= MIN_ZEROS) {
+            patterns.add(VanityPattern.ROUND);
+            score += zeros * 10;
+        }
+        
+        return patterns.isEmpty() ? Classification.NONE : new Classification(patterns, Math.min(score, MAX_SCORE));
+    }
+
+    /**
+     * Longest run of digits where each differs from the one before by {@code step}.
+     */
+    private static int longestRun(int[] digits, int from, int step) {
+        int longest = 1;
+        int current = 1;
+        for (int i = from + 1; i < digits.length; i++) {
+            current = digits[i] - digits[i - 1] == step ? current + 1 : 1;
+            longest = Math.max(longest, current);
+        }
+        return longest;
+    }
+
+    private static int longestTrailingPalindrome(int[] digits, int from) {
+        for (int start = from; start < digits.length; start++) {
+            if (isPalindrome(digits, start, digits.length - 1)) {
+                return digits.length - start;
+            }
+        }
+        return 1;
+    }
+
+    private static boolean isPalindrome(int[] digits, int start, int end) {
+        while (start < end) {
+            if (digits[start++] != digits[end--]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of times an alternating pair of distinct digits (such as 12 in 121212) repeats at the end.
+     */
+    private static int trailingPairs(int[] digits, int from) {
+        int end = digits.length - 1;
+        if (digits[end] == digits[end - 1]) {
+            return 0;
+        }
+        int alternating = 2;
+        while (end - alternating >= from && digits[end - alternating] == digits[end - alternating + 2]) {
+            alternating++;
+        }
+        return alternating / 2;
+    }
+}
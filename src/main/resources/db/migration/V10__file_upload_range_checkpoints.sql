@@ -0,0 +1,2 @@
+-- Where to continue inside the range at checkpoint_offset when a range file was checkpointed mid-range
+ALTER TABLE file_upload_shards ADD COLUMN checkpoint_range_next BIGINT;
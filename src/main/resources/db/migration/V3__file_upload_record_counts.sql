@@ -0,0 +1,3 @@
+-- Split processed records into inserted and skipped (already present) counts
+ALTER TABLE file_uploads ADD COLUMN inserted_records INTEGER;
+ALTER TABLE file_uploads ADD COLUMN skipped_records INTEGER;
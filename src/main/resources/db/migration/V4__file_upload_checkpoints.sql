@@ -0,0 +1,3 @@
+-- Last committed position of a file load, used to resume after a crash or redeploy
+ALTER TABLE file_uploads ADD COLUMN checkpoint_offset BIGINT;
+ALTER TABLE file_uploads ADD COLUMN checkpoint_row BIGINT;
@@ -0,0 +1,24 @@
+-- Newline-aligned byte ranges of an uploaded file, each processed by its own Kafka message
+CREATE TABLE file_upload_shards (
+    id BIGSERIAL PRIMARY KEY,
+    file_upload_id BIGINT NOT NULL,
+    shard_index INTEGER NOT NULL,
+    start_offset BIGINT NOT NULL,
+    end_offset BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    total_records INTEGER,
+    inserted_records INTEGER,
+    skipped_records INTEGER,
+    failed_records INTEGER,
+    checkpoint_offset BIGINT,
+    checkpoint_row BIGINT,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_file_upload FOREIGN KEY (file_upload_id) REFERENCES file_uploads(id),
+    CONSTRAINT uk_file_upload_shard UNIQUE (file_upload_id, shard_index)
+);
+
+-- Checkpoints are now tracked per shard
+ALTER TABLE file_uploads DROP COLUMN checkpoint_offset;
+ALTER TABLE file_uploads DROP COLUMN checkpoint_row;
@@ -0,0 +1,2 @@
+-- Compressed uploads are kept compressed in the temp directory and decompressed while parsing
+ALTER TABLE file_uploads ADD COLUMN compression VARCHAR(10) NOT NULL DEFAULT 'NONE';
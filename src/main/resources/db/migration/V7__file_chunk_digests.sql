@@ -0,0 +1,18 @@
+-- Digests of chunks already loaded from a vendor file, so a resent file only applies the chunks that changed
+CREATE TABLE file_chunk_digests (
+    id BIGSERIAL PRIMARY KEY,
+    original_file_name VARCHAR(255) NOT NULL,
+    uploaded_by VARCHAR(50) NOT NULL,
+    digest VARCHAR(64) NOT NULL,
+    file_upload_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_chunk_digest_file_upload FOREIGN KEY (file_upload_id) REFERENCES file_uploads(id),
+    CONSTRAINT uk_file_chunk_digest UNIQUE (original_file_name, uploaded_by, digest)
+);
+
+ALTER TABLE file_uploads ADD COLUMN skipped_chunks INTEGER;
+ALTER TABLE file_upload_shards ADD COLUMN skipped_chunks INTEGER;
+
+-- Existing numbers changed by a resent file
+ALTER TABLE file_uploads ADD COLUMN updated_records INTEGER;
+ALTER TABLE file_upload_shards ADD COLUMN updated_records INTEGER;
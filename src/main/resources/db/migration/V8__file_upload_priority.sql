@@ -0,0 +1,2 @@
+-- Share of the node's ingestion workers an upload gets relative to other running uploads
+ALTER TABLE file_uploads ADD COLUMN priority VARCHAR(10) NOT NULL DEFAULT 'NORMAL';
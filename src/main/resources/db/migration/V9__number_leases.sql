@@ -0,0 +1,6 @@
+-- Numbers a node has claimed for its reservation pool stay AVAILABLE but are leased to that node
+-- until the lease expires, so other nodes do not claim them for their own pools or bulk reservations
+ALTER TABLE telephone_numbers ADD COLUMN lease_owner VARCHAR(100);
+ALTER TABLE telephone_numbers ADD COLUMN lease_expires_at TIMESTAMP;
+
+CREATE INDEX idx_telephone_numbers_lease_owner ON telephone_numbers(lease_owner) WHERE lease_owner IS NOT NULL;
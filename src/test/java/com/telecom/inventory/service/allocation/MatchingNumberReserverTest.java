@@ -0,0 +1,80 @@
+package com.telecom.inventory.service.allocation;
+
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.model.NumberMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class MatchingNumberReserverTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private MatchingNumberReserver reserver;
+
+    @Test
+    void reserve_shouldMatchContainedDigitsByDefault() {
+        // Act
+        List<Object> args = reserve(SearchCriteriaDTO.builder().number("555-01").build());
+
+        // Assert
+        assertEquals("%55501%", args.get(0));
+    }
+
+    @Test
+    void reserve_shouldMatchPrefixFromCountryCode() {
+        // Act
+        List<Object> args = reserve(SearchCriteriaDTO.builder().number("+1 202").numberMatch(NumberMatch.PREFIX).build());
+
+        // Assert
+        assertEquals("+1202%", args.get(0));
+    }
+
+    @Test
+    void reserve_shouldMatchSuffix() {
+        // Act
+        List<Object> args = reserve(SearchCriteriaDTO.builder().number("77-77").numberMatch(NumberMatch.SUFFIX).build());
+
+        // Assert
+        assertEquals("%7777", args.get(0));
+    }
+
+    @Test
+    void reserve_shouldIgnoreNumberWithoutDigitsAndEscapeWildcards() {
+        // Act
+        List<Object> separatorsOnly = reserve(SearchCriteriaDTO.builder().number("--").countryCode("1").build());
+        List<Object> wildcard = reserve(SearchCriteriaDTO.builder().number("1%2").numberMatch(NumberMatch.PREFIX).build());
+
+        // Assert - country code, then count, user id, reserved until and username
+        assertEquals(List.of("1", 5, 1L), separatorsOnly.subList(0, 3));
+        assertEquals("+1\\%2%", wildcard.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> reserve(SearchCriteriaDTO criteria) {
+        clearInvocations(jdbcTemplate);
+        reserver.reserve(criteria, 5, 1L, "testuser", LocalDateTime.now());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertEquals(sql.getValue().chars().filter(c -> c == '?').count(), args.getAllValues().size());
+        return args.getAllValues();
+    }
+}
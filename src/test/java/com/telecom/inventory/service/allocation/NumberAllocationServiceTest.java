@@ -1,25 +1,38 @@
 package com.telecom.inventory.service.allocation;
 
+import com.telecom.inventory.dto.SearchCriteriaDTO;
 import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.exception.InvalidRequestException;
 import com.telecom.inventory.exception.ResourceNotFoundException;
 import com.telecom.inventory.model.NumberStatus;
 import com.telecom.inventory.model.TelephoneNumber;
 import com.telecom.inventory.model.User;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
 import com.telecom.inventory.repository.UserRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.service.search.AvailabilityIndex;
+import com.telecom.inventory.service.search.NumberPrefixIndex;
 import com.telecom.inventory.service.search.SearchIndexService;
+import com.telecom.inventory.service.search.SearchResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,9 +47,27 @@ public class NumberAllocationServiceTest {
     @Mock
     private SearchIndexService searchIndexService;
 
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private NumberPrefixIndex numberPrefixIndex;
+
     @Mock
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Mock
+    private MatchingNumberReserver matchingNumberReserver;
+
+    @Mock
+    private ReservationPool reservationPool;
+
+    @Spy
+    private StageMetrics stageMetrics = new StageMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private NumberAllocationService allocationService;
 
@@ -65,7 +96,7 @@ public class NumberAllocationServiceTest {
         // Arrange
         when(telephoneNumberRepository.findByIdWithLock(1L)).thenReturn(Optional.of(mockTelephoneNumber));
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(mockUser));
-        when(telephoneNumberRepository.save(any(TelephoneNumber.class))).thenReturn(mockTelephoneNumber);
+        when(telephoneNumberRepository.saveAndFlush(any(TelephoneNumber.class))).thenReturn(mockTelephoneNumber);
 
         // Act
         TelephoneNumberDTO result = allocationService.reserveNumber(1L, "testuser");
@@ -78,8 +109,11 @@ public class NumberAllocationServiceTest {
 
         verify(telephoneNumberRepository).findByIdWithLock(1L);
         verify(userRepository).findByUsername("testuser");
-        verify(telephoneNumberRepository).save(mockTelephoneNumber);
+        verify(telephoneNumberRepository).saveAndFlush(mockTelephoneNumber);
         verify(searchIndexService).updateTelephoneNumberIndex(mockTelephoneNumber);
+        verify(searchResultCache).invalidate(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        verify(availabilityIndex).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        verify(numberPrefixIndex).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
     }
 
     @Test
@@ -112,4 +146,101 @@ public class NumberAllocationServiceTest {
         verifyNoInteractions(userRepository);
         verifyNoInteractions(searchIndexService);
     }
+
+    @Test
+    void reserveMatching_shouldReserveInOneStatementAndRefreshIndexes() {
+        // Arrange
+        ReflectionTestUtils.setField(allocationService, "maxReserveCount", 100);
+        SearchCriteriaDTO criteria = SearchCriteriaDTO.builder().countryCode("1").areaCode("202").build();
+        mockTelephoneNumber.setStatus(NumberStatus.RESERVED);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(mockUser));
+        when(matchingNumberReserver.reserve(eq(criteria), eq(5), eq(1L), eq("testuser"), any(LocalDateTime.class)))
+                .thenReturn(List.of(mockTelephoneNumber));
+
+        // Act
+        List<TelephoneNumberDTO> result = allocationService.reserveMatching(criteria, 5, "testuser");
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(NumberStatus.RESERVED, result.get(0).getStatus());
+        verify(searchIndexService).indexTelephoneNumbers(List.of(mockTelephoneNumber));
+        verify(availabilityIndex).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        verify(numberPrefixIndex).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        verifyNoInteractions(telephoneNumberRepository);
+    }
+
+    @Test
+    void reserveMatching_shouldRejectFiltersOnlyTheSearchIndexCanEvaluate() {
+        // Arrange
+        ReflectionTestUtils.setField(allocationService, "maxReserveCount", 100);
+        SearchCriteriaDTO criteria = SearchCriteriaDTO.builder().features("SMS").build();
+
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> allocationService.reserveMatching(criteria, 5, "testuser"));
+        assertThrows(InvalidRequestException.class,
+                () -> allocationService.reserveMatching(new SearchCriteriaDTO(), 101, "testuser"));
+        verifyNoInteractions(matchingNumberReserver);
+    }
+
+    @Test
+    void reservePooled_shouldHandOutPooledNumberAndRememberUser() {
+        // Arrange
+        mockTelephoneNumber.setStatus(NumberStatus.RESERVED);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(mockUser));
+        when(reservationPool.take(eq("1"), eq("202"), eq("MOBILE"), eq(1L), eq("testuser"), any(LocalDateTime.class)))
+                .thenReturn(mockTelephoneNumber);
+        when(searchIndexService.updateTelephoneNumberIndexAsync(mockTelephoneNumber))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Act
+        allocationService.reservePooled("1", "202", "MOBILE", "testuser");
+        TelephoneNumberDTO result = allocationService.reservePooled("1", "202", "MOBILE", "testuser");
+
+        // Assert
+        assertEquals(NumberStatus.RESERVED, result.getStatus());
+        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(searchIndexService, times(2)).updateTelephoneNumberIndexAsync(mockTelephoneNumber);
+        verify(availabilityIndex, times(2)).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        verifyNoInteractions(matchingNumberReserver, telephoneNumberRepository);
+    }
+
+    @Test
+    void reservePooled_shouldFallBackToSkipLockedReservationWhenPoolIsEmpty() {
+        // Arrange
+        mockTelephoneNumber.setStatus(NumberStatus.RESERVED);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(mockUser));
+        when(matchingNumberReserver.reserve(any(SearchCriteriaDTO.class), eq(1), eq(1L), eq("testuser"), any(LocalDateTime.class)))
+                .thenReturn(List.of(mockTelephoneNumber))
+                .thenReturn(List.of());
+        when(searchIndexService.updateTelephoneNumberIndexAsync(mockTelephoneNumber))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Act
+        TelephoneNumberDTO result = allocationService.reservePooled("1", "202", "MOBILE", "testuser");
+
+        // Assert
+        assertEquals(1L, result.getId());
+        verify(numberPrefixIndex).update(mockTelephoneNumber, NumberStatus.AVAILABLE);
+        assertThrows(ResourceNotFoundException.class,
+                () -> allocationService.reservePooled("1", "202", "MOBILE", "testuser"));
+    }
+
+    @Test
+    void reservePooled_shouldInvalidateCachedPagesOnlyOnceTheIndexIsUpdated() {
+        // Arrange
+        mockTelephoneNumber.setStatus(NumberStatus.RESERVED);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(mockUser));
+        when(reservationPool.take(eq("1"), eq("202"), eq("MOBILE"), eq(1L), eq("testuser"), any(LocalDateTime.class)))
+                .thenReturn(mockTelephoneNumber);
+        CompletableFuture<Void> indexed = new CompletableFuture<>();
+        when(searchIndexService.updateTelephoneNumberIndexAsync(mockTelephoneNumber)).thenReturn(indexed);
+
+        // Act
+        allocationService.reservePooled("1", "202", "MOBILE", "testuser");
+
+        // Assert - a search before the write lands would otherwise cache the number as available again
+        verify(searchResultCache, never()).invalidate(any(), any());
+        indexed.complete(null);
+        verify(searchResultCache).invalidate(mockTelephoneNumber, NumberStatus.AVAILABLE);
+    }
 }
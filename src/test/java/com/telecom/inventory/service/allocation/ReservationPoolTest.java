@@ -0,0 +1,66 @@
+package com.telecom.inventory.service.allocation;
+
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReservationPoolTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ReservationPool pool;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        pool = new ReservationPool(jdbcTemplate, new SimpleMeterRegistry(), true, 3, 1,
+                Duration.ofMinutes(10), Duration.ofMinutes(1), 10, "node");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void take_shouldSkipNumbersNoLongerLeasedAndReturnNullWhenEmpty() {
+        // Arrange
+        LocalDateTime reservedUntil = LocalDateTime.now().plusDays(1);
+        TelephoneNumber reserved = TelephoneNumber.builder().id(12L).number("+12025550012")
+                .countryCode("1").areaCode("202").numberType("MOBILE").status(NumberStatus.RESERVED).build();
+        assertNull(pool.take("1", "202", "MOBILE", 1L, "testuser", reservedUntil));
+
+        when(jdbcTemplate.query(contains("lease_owner = ?, lease_expires_at"), any(RowMapper.class),
+                eq("1"), eq("202"), eq("MOBILE"), eq(3), anyString(), eq(600L)))
+                .thenReturn(List.of(11L, 12L, 13L));
+        when(jdbcTemplate.query(contains("status = 'RESERVED'"), any(RowMapper.class),
+                eq(1L), any(), eq(11L), anyString(), eq("testuser")))
+                .thenReturn(List.of());
+        when(jdbcTemplate.query(contains("status = 'RESERVED'"), any(RowMapper.class),
+                eq(1L), any(), eq(12L), anyString(), eq("testuser")))
+                .thenReturn(List.of(reserved));
+
+        // Act
+        pool.maintain();
+        int leased = pool.size("1", "202", "MOBILE");
+        TelephoneNumber result = pool.take("1", "202", "MOBILE", 1L, "testuser", reservedUntil);
+
+        // Assert
+        assertEquals(3, leased);
+        assertSame(reserved, result);
+        assertEquals(1, pool.size("1", "202", "MOBILE"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.service.file.parser.PackedRows;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CheckpointTrackerTest {
+
+    @Test
+    void complete_shouldOnlyAdvancePastChunksWithoutGaps() {
+        // Arrange
+        CheckpointTracker tracker = new CheckpointTracker(new CheckpointTracker.Checkpoint(0, 20, new ChunkResult()));
+        IngestionChunk first = chunk(0, 10, 100, new ChunkResult(8, 2, 0));
+        IngestionChunk second = chunk(1, 20, 200, new ChunkResult(9, 0, 1));
+        IngestionChunk third = chunk(2, 30, 300, new ChunkResult(10, 0, 0));
+
+        // Act & Assert - later chunks commit first
+        assertEquals(20, tracker.complete(third).getOffset());
+        assertEquals(20, tracker.preview(second).getOffset());
+        assertEquals(20, tracker.complete(second).getOffset());
+
+        CheckpointTracker.Checkpoint checkpoint = tracker.complete(first);
+        assertEquals(300, checkpoint.getOffset());
+        assertEquals(30, checkpoint.getTotalRecords());
+        assertEquals(27, checkpoint.getTotals().getInserted());
+        assertEquals(2, checkpoint.getTotals().getSkipped());
+        assertEquals(1, checkpoint.getTotals().getFailed());
+    }
+
+    @Test
+    void preview_shouldIncludeCandidateWithoutRecordingIt() {
+        // Arrange
+        CheckpointTracker tracker = new CheckpointTracker(new CheckpointTracker.Checkpoint(0, 20, new ChunkResult()));
+        IngestionChunk first = chunk(0, 10, 100, new ChunkResult(10, 0, 0));
+
+        // Act
+        CheckpointTracker.Checkpoint preview = tracker.preview(first);
+
+        // Assert
+        assertEquals(100, preview.getOffset());
+        assertEquals(20, tracker.current().getOffset());
+    }
+
+    private static IngestionChunk chunk(long sequence, int totalRecords, long offset, ChunkResult result) {
+        IngestionChunk chunk = new IngestionChunk(sequence, new PackedRows(0), totalRecords, offset);
+        chunk.setResult(result);
+        return chunk;
+    }
+}
@@ -0,0 +1,81 @@
+package com.telecom.inventory.service.file;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.telecom.inventory.model.CompressionType;
+import com.telecom.inventory.service.file.parser.CsvParser;
+import com.telecom.inventory.service.file.parser.StreamingCsvParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CompressionTest {
+
+    private static final String CSV = "number,countryCode\n+12025550001,1\n+12025550002,1\n";
+
+    @Test
+    void detect_shouldRecognizeMagicBytesWithoutConsumingThem() throws IOException {
+        // Arrange
+        BufferedInputStream gzip = Compression.buffered(new ByteArrayInputStream(gzip(CSV)));
+        BufferedInputStream zstd = Compression.buffered(new ByteArrayInputStream(zstd(CSV)));
+        BufferedInputStream plain = Compression.buffered(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)));
+
+        // Act & Assert
+        assertEquals(CompressionType.GZIP, Compression.detect("application/octet-stream", gzip));
+        assertEquals(CompressionType.ZSTD, Compression.detect(null, zstd));
+        assertEquals(CompressionType.NONE, Compression.detect("text/csv", plain));
+        assertEquals('n', plain.read());
+    }
+
+    @Test
+    void detect_shouldPreferContentTypeOrEncoding() {
+        assertEquals(CompressionType.GZIP, Compression.detect("application/x-gzip", new byte[0], 0));
+        assertEquals(CompressionType.ZSTD, Compression.detect("zstd", new byte[0], 0));
+    }
+
+    @Test
+    void decompress_shouldStreamRowsFromCompressedInput() throws IOException {
+        for (byte[] compressed : new byte[][]{gzip(CSV), zstd(CSV)}) {
+            // Arrange
+            BufferedInputStream body = Compression.buffered(new ByteArrayInputStream(compressed));
+            CompressionType compression = Compression.detect(null, body);
+
+            // Act
+            int rows = 0;
+            String last = null;
+            try (CsvParser parser = new StreamingCsvParser(Compression.decompress(body, compression))) {
+                while (parser.next()) {
+                    rows++;
+                    last = parser.row().getString(0);
+                }
+            }
+
+            // Assert
+            assertEquals(3, rows);
+            assertEquals("+12025550002", last);
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] zstd(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,64 @@
+package com.telecom.inventory.service.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContentChunkerTest {
+
+    private static final byte[] HEADER = "number,countryCode".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void finish_shouldGiveSameDigestsForSameRows() {
+        // Act
+        List<String> first = digests(rows(0, 2000));
+        List<String> second = digests(rows(0, 2000));
+
+        // Assert
+        assertEquals(first, second);
+        assertTrue(first.size() > 1);
+    }
+
+    @Test
+    void add_shouldOnlyChangeChunksAroundAnInsertedRow() {
+        // Arrange
+        List<String> original = rows(0, 2000);
+        List<String> changed = new ArrayList<>(original);
+        changed.add(1000, "+19995550000,1");
+
+        // Act
+        List<String> before = digests(original);
+        List<String> after = digests(changed);
+
+        // Assert - boundaries resynchronize after the insertion
+        List<String> unchanged = new ArrayList<>(after);
+        unchanged.retainAll(before);
+        assertTrue(unchanged.size() >= before.size() - 2);
+    }
+
+    private static List<String> rows(int from, int to) {
+        List<String> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add("+1202555" + String.format("%04d", i) + ",1");
+        }
+        return rows;
+    }
+
+    private static List<String> digests(List<String> rows) {
+        ContentChunker chunker = new ContentChunker(64, HEADER);
+        List<String> digests = new ArrayList<>();
+        for (String row : rows) {
+            if (chunker.add(ByteBuffer.wrap(row.getBytes(StandardCharsets.UTF_8)))) {
+                digests.add(chunker.finish());
+            }
+        }
+        digests.add(chunker.finish());
+        return digests;
+    }
+}
@@ -1,28 +1,60 @@
 package com.telecom.inventory.service.file;
 
 import com.telecom.inventory.dto.FileUploadDTO;
+import com.telecom.inventory.model.CompressionType;
 import com.telecom.inventory.model.FileUpload;
+import com.telecom.inventory.model.FileUploadShard;
 import com.telecom.inventory.model.FileUploadStatus;
+import com.telecom.inventory.model.IngestionPriority;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.repository.FileChunkDigestRepository;
 import com.telecom.inventory.repository.FileUploadRepository;
+import com.telecom.inventory.repository.FileUploadShardRepository;
 import com.telecom.inventory.repository.TelephoneNumberRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import com.telecom.inventory.service.search.AvailabilityIndex;
+import com.telecom.inventory.service.search.NumberPrefixIndex;
 import com.telecom.inventory.service.search.SearchIndexService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +63,9 @@ public class FileProcessingServiceTest {
     @Mock
     private FileUploadRepository fileUploadRepository;
 
+    @Mock
+    private FileUploadShardRepository shardRepository;
+
     @Mock
     private TelephoneNumberRepository telephoneNumberRepository;
 
@@ -40,14 +75,45 @@ public class FileProcessingServiceTest {
     @Mock
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Mock
+    private FileChunkDigestRepository chunkDigestRepository;
+
+    @Mock
+    private PostgresBulkLoader bulkLoader;
+
+    @Mock
+    private UploadProgressBroadcaster progressBroadcaster;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private IngestionScheduler ingestionScheduler;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private NumberPrefixIndex numberPrefixIndex;
+
+    @Spy
+    private StageMetrics stageMetrics = new StageMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private FileProcessingService fileProcessingService;
 
+    @TempDir
+    Path tempDirectory;
+
     private MultipartFile mockFile;
     private FileUpload mockFileUpload;
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(fileProcessingService, "tempDirectory", tempDirectory.toString());
+        ReflectionTestUtils.setField(fileProcessingService, "fileProcessingTopic", "file-processing");
+        ReflectionTestUtils.setField(fileProcessingService, "shardSize", DataSize.ofMegabytes(64));
+
         mockFile = new MockMultipartFile(
                 "file",
                 "numbers.csv",
@@ -71,9 +137,10 @@ public class FileProcessingServiceTest {
     void uploadFile_shouldCreateFileUploadAndSendKafkaMessage() throws IOException {
         // Arrange
         when(fileUploadRepository.save(any(FileUpload.class))).thenReturn(mockFileUpload);
+        when(shardRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
-        FileUploadDTO result = fileProcessingService.uploadFile(mockFile, "testuser");
+        FileUploadDTO result = fileProcessingService.uploadFile(mockFile, IngestionPriority.NORMAL, "testuser");
 
         // Assert
         assertNotNull(result);
@@ -82,7 +149,8 @@ public class FileProcessingServiceTest {
         assertEquals("testuser", result.getUploadedBy());
 
         verify(fileUploadRepository).save(any(FileUpload.class));
-        verify(kafkaTemplate).send(anyString(), anyString());
+        verify(shardRepository).saveAll(anyList());
+        verify(kafkaTemplate).send(eq("file-processing"), endsWith(":0"), endsWith(":0"));
     }
 
     @Test
@@ -100,4 +168,228 @@ public class FileProcessingServiceTest {
 
         verify(fileUploadRepository).findByBatchId("batch-id");
     }
+
+    @Test
+    void processBatch_shouldSkipExistingAndRepeatedNumbersWithSingleLookup() {
+        // Arrange
+        List<String[]> batch = Arrays.asList(
+                new String[]{"+12025550001", "1", "202"},
+                new String[]{"+12025550002", "1", "202"},
+                new String[]{"+12025550002", "1", "202"},
+                new String[]{"", "1"});
+        when(telephoneNumberRepository.findExistingNumbers(anyCollection()))
+                .thenReturn(Collections.singletonList("+12025550001"));
+        when(telephoneNumberRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<TelephoneNumber> inserted = new ArrayList<>();
+
+        // Act
+        ChunkResult result = fileProcessingService.processBatch(batch, "batch-id", false, inserted, new ArrayList<>());
+
+        // Assert
+        assertEquals(1, result.getInserted());
+        assertEquals(2, result.getSkipped());
+        assertEquals(1, result.getFailed());
+
+        verify(telephoneNumberRepository, times(1)).findExistingNumbers(anyCollection());
+        verify(telephoneNumberRepository, never()).existsByNumber(anyString());
+        assertEquals(1, inserted.size());
+        assertEquals("+12025550002", inserted.get(0).getNumber());
+    }
+
+    @Test
+    void processBatch_shouldUpdateChangedAvailableNumbersOfResentFile() {
+        // Arrange
+        List<String[]> batch = Arrays.asList(
+                new String[]{"+12025550001", "1", "202", "MOBILE", "GOLD", "SMS"},
+                new String[]{"+12025550002", "1", "202", "MOBILE", "GOLD", "SMS"},
+                new String[]{"+12025550003", "1", "202", "MOBILE", "GOLD", "SMS"});
+        TelephoneNumber changed = TelephoneNumber.builder().id(1L).number("+12025550001").countryCode("1")
+                .areaCode("202").numberType("FIXED").category("STANDARD").status(NumberStatus.AVAILABLE).build();
+        TelephoneNumber reserved = TelephoneNumber.builder().id(2L).number("+12025550002").countryCode("1")
+                .areaCode("202").numberType("FIXED").category("STANDARD").status(NumberStatus.RESERVED).build();
+        when(telephoneNumberRepository.findByNumberIn(anyCollection())).thenReturn(Arrays.asList(changed, reserved));
+        when(telephoneNumberRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<TelephoneNumber> inserted = new ArrayList<>();
+        List<NumberUpdate> updated = new ArrayList<>();
+
+        // Act
+        ChunkResult result = fileProcessingService.processBatch(batch, "batch-id", true, inserted, updated);
+
+        // Assert
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getSkipped());
+        assertEquals(3, result.getProcessed());
+
+        assertEquals("MOBILE", changed.getNumberType());
+        assertEquals("GOLD", changed.getCategory());
+        assertEquals("SMS", changed.getFeatures());
+        assertEquals("FIXED", reserved.getNumberType());
+
+        assertEquals(1, updated.size());
+        assertEquals(changed, updated.get(0).getTelephoneNumber());
+        assertEquals("FIXED", updated.get(0).getPreviousNumberType());
+        verify(telephoneNumberRepository, never()).findExistingNumbers(anyCollection());
+    }
+
+    @Test
+    void processFile_shouldIgnoreRedeliveredCompletedShard() {
+        // Arrange
+        FileUploadShard shard = FileUploadShard.builder()
+                .fileUploadId(1L)
+                .shardIndex(2)
+                .status(FileUploadStatus.COMPLETED)
+                .build();
+        when(fileUploadRepository.findByBatchId("batch-id")).thenReturn(Optional.of(mockFileUpload));
+        when(shardRepository.findByFileUploadIdAndShardIndex(1L, 2)).thenReturn(Optional.of(shard));
+
+        // Act
+        fileProcessingService.processFile("batch-id:2");
+
+        // Assert
+        verify(fileUploadRepository, never()).save(any(FileUpload.class));
+        verify(shardRepository, never()).save(any(FileUploadShard.class));
+        verifyNoInteractions(telephoneNumberRepository, bulkLoader, transactionTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processFile_shouldContinueRangeFromCheckpointWithoutCountingItTwice() throws Exception {
+        // Arrange - 100 numbers, 60 of which were loaded before the crash
+        String header = "start,end,countryCode\n";
+        Files.write(tempDirectory.resolve(mockFileUpload.getFileName()),
+                (header + "+12025550000,+12025550099,1\n").getBytes(StandardCharsets.UTF_8));
+        mockFileUpload.setCompression(CompressionType.NONE);
+        mockFileUpload.setPriority(IngestionPriority.NORMAL);
+        FileUploadShard shard = FileUploadShard.builder()
+                .id(5L)
+                .fileUploadId(1L)
+                .shardIndex(0)
+                .startOffset(0L)
+                .endOffset((long) (header.length() + 27))
+                .status(FileUploadStatus.PROCESSING)
+                .checkpointOffset((long) header.length())
+                .checkpointRangeNext(12025550060L)
+                .checkpointRow(60L)
+                .totalRecords(60)
+                .insertedRecords(60)
+                .build();
+        ReflectionTestUtils.setField(fileProcessingService, "rangeChunkSize", 30);
+        ReflectionTestUtils.setField(fileProcessingService, "pipelineQueueCapacity", 4);
+        ReflectionTestUtils.setField(fileProcessingService, "validateThreads", 1);
+        ReflectionTestUtils.setField(fileProcessingService, "indexThreads", 1);
+        ReflectionTestUtils.setField(fileProcessingService, "checkpointInterval", Duration.ofHours(1));
+
+        IngestionScheduler scheduler = new IngestionScheduler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "workerCount", 1);
+        ReflectionTestUtils.setField(scheduler, "laneCapacity", 8);
+        scheduler.start();
+        when(ingestionScheduler.openLane(anyString(), any())).thenAnswer(invocation ->
+                scheduler.openLane(invocation.getArgument(0), invocation.getArgument(1)));
+
+        when(fileUploadRepository.findByBatchId("batch-id")).thenReturn(Optional.of(mockFileUpload));
+        when(fileUploadRepository.findByIdWithLock(1L)).thenReturn(Optional.of(mockFileUpload));
+        when(shardRepository.findByFileUploadIdAndShardIndex(1L, 0)).thenReturn(Optional.of(shard));
+        when(shardRepository.save(any(FileUploadShard.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(shardRepository.findByFileUploadIdOrderByShardIndex(1L)).thenReturn(List.of(shard));
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        // Every number of the resumed part already exists
+        when(bulkLoader.loadRanges(anyList(), eq("batch-id"))).thenAnswer(invocation -> {
+            List<NumberRange> ranges = invocation.getArgument(0);
+            return new BulkLoadResult(Collections.emptyList(),
+                    (int) ranges.stream().mapToLong(NumberRange::size).sum(), 0);
+        });
+
+        // Act
+        try {
+            fileProcessingService.processFile("batch-id:0");
+        } finally {
+            scheduler.stop();
+        }
+
+        // Assert
+        ArgumentCaptor<List<NumberRange>> ranges = ArgumentCaptor.forClass(List.class);
+        verify(bulkLoader, atLeastOnce()).loadRanges(ranges.capture(), eq("batch-id"));
+        assertEquals(12025550060L, ranges.getAllValues().get(0).get(0).getFirst());
+        assertEquals(FileUploadStatus.COMPLETED, shard.getStatus());
+        assertEquals(100, shard.getTotalRecords());
+        assertEquals(60, shard.getInsertedRecords());
+        assertEquals(40, shard.getSkippedRecords());
+        assertEquals(100, mockFileUpload.getTotalRecords());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processFile_shouldApplyChangedChunkOfResentFileToExistingNumber() throws Exception {
+        // Arrange - the number was loaded by an earlier upload as a FIXED line
+        String content = "number,countryCode,areaCode,numberType\n+12025550001,1,202,MOBILE\n";
+        Files.write(tempDirectory.resolve(mockFileUpload.getFileName()), content.getBytes(StandardCharsets.UTF_8));
+        mockFileUpload.setCompression(CompressionType.NONE);
+        mockFileUpload.setPriority(IngestionPriority.NORMAL);
+        FileUploadShard shard = FileUploadShard.builder()
+                .id(5L)
+                .fileUploadId(1L)
+                .shardIndex(0)
+                .startOffset(0L)
+                .endOffset((long) content.length())
+                .status(FileUploadStatus.PENDING)
+                .build();
+        ReflectionTestUtils.setField(fileProcessingService, "chunkSize", 100);
+        ReflectionTestUtils.setField(fileProcessingService, "pipelineQueueCapacity", 4);
+        ReflectionTestUtils.setField(fileProcessingService, "validateThreads", 1);
+        ReflectionTestUtils.setField(fileProcessingService, "indexThreads", 1);
+        ReflectionTestUtils.setField(fileProcessingService, "deltaEnabled", true);
+        ReflectionTestUtils.setField(fileProcessingService, "ingestionMode", IngestionMode.COPY);
+        ReflectionTestUtils.setField(fileProcessingService, "checkpointInterval", Duration.ofHours(1));
+
+        IngestionScheduler scheduler = new IngestionScheduler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "workerCount", 1);
+        ReflectionTestUtils.setField(scheduler, "laneCapacity", 8);
+        scheduler.start();
+        when(ingestionScheduler.openLane(anyString(), any())).thenAnswer(invocation ->
+                scheduler.openLane(invocation.getArgument(0), invocation.getArgument(1)));
+
+        when(fileUploadRepository.findByBatchId("batch-id")).thenReturn(Optional.of(mockFileUpload));
+        when(fileUploadRepository.findByIdWithLock(1L)).thenReturn(Optional.of(mockFileUpload));
+        when(shardRepository.findByFileUploadIdAndShardIndex(1L, 0)).thenReturn(Optional.of(shard));
+        when(shardRepository.save(any(FileUploadShard.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(shardRepository.findByFileUploadIdOrderByShardIndex(1L)).thenReturn(List.of(shard));
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+
+        TelephoneNumber existing = TelephoneNumber.builder().id(7L).number("+12025550001").countryCode("1")
+                .areaCode("202").numberType("MOBILE").status(NumberStatus.AVAILABLE).build();
+        NumberUpdate update = new NumberUpdate(existing, "202", "FIXED");
+        when(bulkLoader.load(any(), eq("batch-id"), eq(true))).thenReturn(
+                new BulkLoadResult(Collections.emptyList(), 1, 0, List.of(update)));
+
+        // Act
+        try {
+            fileProcessingService.processFile("batch-id:0");
+        } finally {
+            scheduler.stop();
+        }
+
+        // Assert
+        assertEquals(FileUploadStatus.COMPLETED, shard.getStatus());
+        assertEquals(1, shard.getUpdatedRecords());
+        assertEquals(0, shard.getSkippedRecords());
+        assertEquals(1, mockFileUpload.getUpdatedRecords());
+        assertEquals(1, mockFileUpload.getProcessedRecords());
+
+        verify(availabilityIndex).updateAttributes(existing, "202", "FIXED");
+        verify(searchIndexService).indexTelephoneNumbers(List.of(existing));
+        verify(chunkDigestRepository).saveDigest(eq("numbers.csv"), eq("testuser"), anyString(), eq(1L));
+    }
 }
@@ -0,0 +1,95 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.IngestionPriority;
+import com.telecom.inventory.service.file.parser.PackedRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class IngestionPipelineTest {
+
+    private IngestionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new IngestionScheduler(new SimpleMeterRegistry());
+        // A single shared worker, which a blocked task would take away from every other upload
+        ReflectionTestUtils.setField(scheduler, "workerCount", 1);
+        ReflectionTestUtils.setField(scheduler, "laneCapacity", 8);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        scheduler.stop();
+    }
+
+    @Test
+    void finish_shouldNotBeHeldUpByAnotherPipelineWhoseIndexStageIsStuck() throws Exception {
+        // Arrange
+        CountDownLatch indexReleased = new CountDownLatch(1);
+        AtomicInteger otherIndexed = new AtomicInteger();
+
+        try (IngestionScheduler.Lane stuckLane = scheduler.openLane("stuck", IngestionPriority.NORMAL);
+             IngestionPipeline stuck = new IngestionPipeline("stuck", 1)
+                     .stage("persist", stuckLane, chunk -> { })
+                     .stage("index", 1, chunk -> await(indexReleased))
+                     .start();
+             IngestionScheduler.Lane otherLane = scheduler.openLane("other", IngestionPriority.NORMAL);
+             IngestionPipeline other = new IngestionPipeline("other", 1)
+                     .stage("persist", otherLane, chunk -> { })
+                     .stage("index", 1, chunk -> otherIndexed.incrementAndGet())
+                     .start()) {
+
+            // Enough chunks to fill every queue of the stuck pipeline up to its persist stage
+            CompletableFuture<Void> stuckReader = CompletableFuture.runAsync(() -> submitAll(stuck, 10));
+
+            // Act
+            CompletableFuture<Void> otherReader = CompletableFuture.runAsync(() -> {
+                submitAll(other, 5);
+                try {
+                    other.finish();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            otherReader.get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertEquals(5, otherIndexed.get());
+            assertFalse(stuckReader.isDone());
+
+            indexReleased.countDown();
+            stuckReader.get(5, TimeUnit.SECONDS);
+            stuck.finish();
+        }
+    }
+
+    private static void submitAll(IngestionPipeline pipeline, int chunks) {
+        try {
+            for (int i = 0; i < chunks; i++) {
+                pipeline.submit(new PackedRows(0), i + 1, i + 1, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.model.IngestionPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IngestionSchedulerTest {
+
+    private IngestionScheduler scheduler;
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new IngestionScheduler(new SimpleMeterRegistry());
+        // A single worker makes the order in which lanes are served observable
+        ReflectionTestUtils.setField(scheduler, "workerCount", 1);
+        ReflectionTestUtils.setField(scheduler, "laneCapacity", 8);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        scheduler.stop();
+    }
+
+    @Test
+    void workers_shouldServePrioritiesByWeight() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = block();
+        CountDownLatch done = new CountDownLatch(12);
+        try (IngestionScheduler.Lane high = scheduler.openLane("high", IngestionPriority.HIGH);
+             IngestionScheduler.Lane normal = scheduler.openLane("normal", IngestionPriority.NORMAL);
+             IngestionScheduler.Lane bulk = scheduler.openLane("bulk", IngestionPriority.BULK)) {
+            for (int i = 0; i < 4; i++) {
+                high.execute(record("high", done));
+                normal.execute(record("normal", done));
+                bulk.execute(record("bulk", done));
+            }
+            assertEquals(4, scheduler.getStatus().getQueuedChunks().get(IngestionPriority.HIGH));
+
+            // Act
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+
+        // Assert - one full cycle of weights 4:2:1
+        List<String> cycle = order.subList(0, 7);
+        assertEquals(4, Collections.frequency(cycle, "high"));
+        assertEquals(2, Collections.frequency(cycle, "normal"));
+        assertEquals(1, Collections.frequency(cycle, "bulk"));
+        assertEquals(0, scheduler.getStatus().getActiveUploads());
+    }
+
+    @Test
+    void workers_shouldRoundRobinUploadsOfSamePriority() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = block();
+        CountDownLatch done = new CountDownLatch(6);
+        try (IngestionScheduler.Lane large = scheduler.openLane("large", IngestionPriority.NORMAL);
+             IngestionScheduler.Lane small = scheduler.openLane("small", IngestionPriority.NORMAL)) {
+            for (int i = 0; i < 3; i++) {
+                large.execute(record("large", done));
+            }
+            for (int i = 0; i < 3; i++) {
+                small.execute(record("small", done));
+            }
+
+            // Act
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+
+        // Assert
+        assertEquals(List.of("large", "small", "large", "small", "large", "small"), order);
+    }
+
+    private CountDownLatch block() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (IngestionScheduler.Lane blocker = scheduler.openLane("blocker", IngestionPriority.NORMAL)) {
+            blocker.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private Runnable record(String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.telecom.inventory.service.file;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NumberRangeTest {
+
+    @Test
+    void parse_shouldKeepDigitCount() {
+        // Act
+        NumberRange range = NumberRange.parse(
+                new String[]{"+12025550000", "+12025559999", "1", "202", "MOBILE", null, null}, 1_000_000);
+
+        // Assert
+        assertNotNull(range);
+        assertEquals(11, range.getDigits());
+        assertEquals(12025550000L, range.getFirst());
+        assertEquals(10_000, range.size());
+        assertEquals("202", range.getAreaCode());
+    }
+
+    @Test
+    void parse_shouldRejectMalformedRanges() {
+        // Mismatched length, reversed bounds, non-digits, missing country code and oversized range
+        assertNull(NumberRange.parse(new String[]{"+1202555000", "+12025559999", "1", null, null, null, null}, 1_000_000));
+        assertNull(NumberRange.parse(new String[]{"+12025559999", "+12025550000", "1", null, null, null, null}, 1_000_000));
+        assertNull(NumberRange.parse(new String[]{"+1202555000A", "+12025559999", "1", null, null, null, null}, 1_000_000));
+        assertNull(NumberRange.parse(new String[]{"+12025550000", "+12025559999", null, null, null, null, null}, 1_000_000));
+        assertNull(NumberRange.parse(new String[]{"+12025550000", "+12025559999", "1", null, null, null, null}, 100));
+    }
+
+    @Test
+    void parse_shouldNormalizeBoundsAndCheckThemAgainstCountryCode() {
+        // Act
+        NumberRange national = NumberRange.parse(
+                new String[]{"2025550000", "2025559999", "1", "202", null, null, null}, 1_000_000);
+        NumberRange otherCountry = NumberRange.parse(
+                new String[]{"+12025550000", "+12025559999", "44", null, null, null, null}, 1_000_000);
+        NumberRange spelledOut = NumberRange.parse(
+                new String[]{"1 (202) 555-0000", "+1 202 555 0099", "1", null, null, null, null}, 1_000_000);
+
+        // Assert - without the '+' the digits read as a number of country code 2, not 1
+        assertNull(national);
+        assertNull(otherCountry);
+        assertNotNull(spelledOut);
+        assertEquals(12025550000L, spelledOut.getFirst());
+        assertEquals(100, spelledOut.size());
+    }
+
+    @Test
+    void slice_shouldKeepAttributes() {
+        // Arrange
+        NumberRange range = NumberRange.parse(
+                new String[]{"0012025550000", "0012025559999", "1", "202", null, "GOLD", null}, 1_000_000);
+
+        // Act
+        NumberRange slice = range.slice(12025550100L, 12025550199L);
+
+        // Assert
+        assertEquals(11, slice.getDigits());
+        assertEquals(100, slice.size());
+        assertEquals("GOLD", slice.getCategory());
+    }
+}
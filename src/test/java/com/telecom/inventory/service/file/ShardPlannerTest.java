@@ -0,0 +1,48 @@
+package com.telecom.inventory.service.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShardPlannerTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void planBoundaries_shouldAlignShardsToRowStarts() throws IOException {
+        // Arrange: header is 19 bytes, every row is 15 bytes
+        Path file = tempDirectory.resolve("numbers.csv");
+        Files.write(file, ("number,countryCode\n"
+                + "+12025550001,1\n"
+                + "+12025550002,1\n"
+                + "+12025550003,1\n").getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        List<Long> boundaries = ShardPlanner.planBoundaries(file, 20);
+
+        // Assert
+        assertEquals(Arrays.asList(0L, 34L, 64L), boundaries);
+    }
+
+    @Test
+    void planBoundaries_shouldReturnSingleShardForSmallFiles() throws IOException {
+        // Arrange
+        Path file = tempDirectory.resolve("numbers.csv");
+        Files.write(file, "number,countryCode\n+12025550001,1\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        List<Long> boundaries = ShardPlanner.planBoundaries(file, 1024);
+
+        // Assert
+        assertEquals(Arrays.asList(0L, Files.size(file)), boundaries);
+    }
+}
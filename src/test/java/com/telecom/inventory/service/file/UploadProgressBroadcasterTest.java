@@ -0,0 +1,57 @@
+package com.telecom.inventory.service.file;
+
+import com.telecom.inventory.dto.FileUploadDTO;
+import com.telecom.inventory.model.FileUploadStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UploadProgressBroadcasterTest {
+
+    @Test
+    void snapshot_shouldOverlayLiveCountersOnPersistedShards() {
+        // Arrange
+        UploadProgressBroadcaster broadcaster = new UploadProgressBroadcaster();
+        FileUploadDTO upload = FileUploadDTO.builder()
+                .batchId("batch-id")
+                .status(FileUploadStatus.PROCESSING)
+                .build();
+        broadcaster.subscribe("batch-id", upload, 60_000);
+        assertNull(broadcaster.snapshot("batch-id"));
+
+        broadcaster.refresh("batch-id", upload, Map.of(
+                0, new UploadProgressBroadcaster.ShardProgress(100, new ChunkResult(90, 10, 0)),
+                1, new UploadProgressBroadcaster.ShardProgress(50, new ChunkResult(50, 0, 0))), 1);
+
+        // Act - shard 1 runs on this node and is further along than its checkpoint
+        broadcaster.update("batch-id", 1, 80, new ChunkResult(75, 0, 5));
+        FileUploadDTO snapshot = broadcaster.snapshot("batch-id");
+
+        // Assert
+        assertEquals(180, snapshot.getTotalRecords());
+        assertEquals(175, snapshot.getProcessedRecords());
+        assertEquals(165, snapshot.getInsertedRecords());
+        assertEquals(5, snapshot.getFailedRecords());
+    }
+
+    @Test
+    void finish_shouldDropShardCountersAndForceRefresh() {
+        // Arrange
+        UploadProgressBroadcaster broadcaster = new UploadProgressBroadcaster();
+        broadcaster.subscribe("batch-id", FileUploadDTO.builder().batchId("batch-id")
+                .status(FileUploadStatus.PROCESSING).build(), 60_000);
+        broadcaster.refresh("batch-id", FileUploadDTO.builder().build(), Map.of(), 4_000);
+        broadcaster.update("batch-id", 0, 10, new ChunkResult(10, 0, 0));
+
+        // Act
+        broadcaster.finish("batch-id", 0);
+
+        // Assert
+        assertEquals(0, broadcaster.running("batch-id").size());
+        assertTrue(broadcaster.needsRefresh("batch-id", 10_000, 10_000));
+    }
+}
@@ -0,0 +1,149 @@
+package com.telecom.inventory.service.file.parser;
+
+import com.telecom.inventory.exception.FileProcessingException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCsvParserTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void next_shouldResolveColumnsFromHeader() throws IOException {
+        // Arrange
+        Path file = write("areaCode,countryCode,number\n202,1,+12025550001\n");
+
+        // Act
+        try (CsvParser parser = MappedCsvParser.open(file)) {
+            assertTrue(parser.next());
+            ColumnLayout layout = ColumnLayout.fromHeader(parser.row().toArray());
+            assertTrue(parser.next());
+            PackedRows rows = new PackedRows(1);
+            layout.appendTo(parser.row(), rows);
+
+            // Assert
+            assertArrayEquals(new String[]{"+12025550001", "1", "202", null, null, null}, rows.toArray(0));
+            assertFalse(parser.next());
+        }
+    }
+
+    @Test
+    void next_shouldHandleQuotesCrLfBlankLinesAndMissingTrailingNewline() throws IOException {
+        // Arrange
+        Path file = write("number,countryCode,features\r\n"
+                + "+12025550001,1,\"SMS,Voice\"\r\n"
+                + "\r\n"
+                + "+12025550002,1,\"say \"\"hi\"\"\"");
+
+        // Act
+        List<String[]> rows = readAll(open(file, 64));
+
+        // Assert
+        assertEquals(3, rows.size());
+        assertArrayEquals(new String[]{"+12025550001", "1", "SMS,Voice"}, rows.get(1));
+        assertArrayEquals(new String[]{"+12025550002", "1", "say \"hi\""}, rows.get(2));
+    }
+
+    @Test
+    void next_shouldContinueRowsAcrossWindowBoundaries() throws IOException {
+        // Arrange
+        StringBuilder content = new StringBuilder("number,countryCode\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("+1202555").append(String.format("%04d", i)).append(",1\n");
+        }
+        Path file = write(content.toString());
+
+        // Act
+        List<String[]> rows = readAll(open(file, 40));
+
+        // Assert
+        assertEquals(101, rows.size());
+        assertEquals("+12025550099", rows.get(100)[0]);
+    }
+
+    @Test
+    void getPosition_shouldAllowResumingAfterARow() throws IOException {
+        // Arrange
+        Path file = write("number,countryCode\n+12025550001,1\n+12025550002,1\n");
+        long resumeAt;
+        try (CsvParser parser = MappedCsvParser.open(file)) {
+            parser.next();
+            parser.next();
+            resumeAt = parser.getPosition();
+        }
+
+        // Act
+        List<String[]> rows = readAll(new MappedCsvParser(
+                FileChannel.open(file, StandardOpenOption.READ), resumeAt, Files.size(file), 1024));
+
+        // Assert
+        assertEquals(1, rows.size());
+        assertEquals("+12025550002", rows.get(0)[0]);
+    }
+
+    @Test
+    void appendTo_shouldPackNormalizedRowsWithoutDecodingThem() throws IOException {
+        // Arrange
+        Path file = write("features,number,countryCode\n"
+                + "\"say \"\"hi\"\"\",(202) 555-0001,1\n"
+                + ",not-a-number,1\n");
+        PackedRows rows = new PackedRows(1);
+
+        // Act
+        try (CsvParser parser = open(file, 40)) {
+            parser.next();
+            ColumnLayout layout = ColumnLayout.fromHeader(parser.row().toArray());
+            while (parser.next()) {
+                layout.appendTo(parser.row(), rows);
+            }
+        }
+        rows.reject(1);
+
+        // Assert
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.validCount());
+        assertEquals("+2025550001", rows.field().of(0, PackedRows.NUMBER).toString());
+        assertEquals("say \"hi\"", rows.getString(0, PackedRows.FEATURES));
+        assertEquals("not-a-number", rows.getString(1, PackedRows.NUMBER));
+        assertEquals(1, rows.toList().size());
+    }
+
+    @Test
+    void fromHeader_shouldRejectHeaderWithoutRequiredColumns() {
+        assertThrows(FileProcessingException.class,
+                () -> ColumnLayout.fromHeader(new String[]{"number", "areaCode"}));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDirectory.resolve("numbers.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private MappedCsvParser open(Path file, int windowSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new MappedCsvParser(channel, 0, channel.size(), windowSize);
+    }
+
+    private List<String[]> readAll(CsvParser parser) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (parser) {
+            while (parser.next()) {
+                rows.add(parser.row().toArray());
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package com.telecom.inventory.service.file.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamingCsvParserTest {
+
+    @Test
+    void next_shouldRefillBufferForRowsSpanningReads() throws IOException {
+        // Arrange
+        StringBuilder content = new StringBuilder("number,countryCode,features\n");
+        for (int i = 0; i < 50; i++) {
+            content.append("+1202555").append(String.format("%04d", i)).append(",1,\"SMS,Voice\"\n");
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        List<String[]> rows = new ArrayList<>();
+        try (CsvParser parser = new StreamingCsvParser(new ByteArrayInputStream(bytes), 48)) {
+            while (parser.next()) {
+                rows.add(parser.row().toArray());
+            }
+
+            // Assert
+            assertEquals(bytes.length, parser.getPosition());
+        }
+        assertEquals(51, rows.size());
+        assertEquals("+12025550049", rows.get(50)[0]);
+        assertEquals("SMS,Voice", rows.get(50)[2]);
+    }
+
+    @Test
+    void seek_shouldSkipForwardInTheStream() throws IOException {
+        // Arrange
+        byte[] bytes = "number,countryCode\n+12025550001,1\n+12025550002,1\n".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        try (CsvParser parser = new StreamingCsvParser(new ByteArrayInputStream(bytes), 24)) {
+            parser.next();
+            parser.seek(34);
+
+            // Assert
+            parser.next();
+            assertEquals("+12025550002", parser.row().getString(0));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.telecom.inventory.service.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StageMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StageMetrics stageMetrics = new StageMetrics(registry);
+
+    @Test
+    void time_shouldTagStagesByOperationAndOutcome() {
+        // Act
+        String result = stageMetrics.time("reserve", "lock", () -> "locked");
+        stageMetrics.time("reserve", "lock", () -> "locked");
+        assertThrows(IOException.class, () -> stageMetrics.time("reserve", "index.update", () -> {
+            throw new IOException("index unavailable");
+        }));
+
+        // Assert
+        assertEquals("locked", result);
+        assertEquals(2, timer("reserve", "lock", "success").count());
+        assertEquals(1, timer("reserve", "index.update", "error").count());
+    }
+
+    private Timer timer(String operation, String stage, String outcome) {
+        return registry.get(StageMetrics.TIMER)
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
@@ -0,0 +1,94 @@
+package com.telecom.inventory.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NumberBucketTest {
+
+    @Test
+    void page_shouldMergeAddedNumbersAndSkipRemovedOnes() {
+        // Arrange
+        NumberBucket bucket = new NumberBucket(
+                new long[]{12025550001L, 12025550003L, 12025550005L}, new long[]{1, 3, 5}, 3, 0.1);
+        bucket.add(12025550004L, 4);
+        bucket.add(12025550000L, 10);
+        bucket.remove(12025550003L);
+
+        // Act
+        long[] numbers = new long[10];
+        long[] ids = new long[10];
+        int count = bucket.page(1, 10, numbers, ids);
+
+        // Assert
+        assertEquals(4, bucket.size());
+        assertEquals(3, count);
+        assertArrayEquals(new long[]{12025550001L, 12025550004L, 12025550005L}, Arrays.copyOf(numbers, count));
+        assertArrayEquals(new long[]{1, 4, 5}, Arrays.copyOf(ids, count));
+    }
+
+    @Test
+    void countAndRange_shouldOnlySeeNumbersWithinBounds() {
+        // Arrange
+        NumberBucket bucket = new NumberBucket(
+                new long[]{12025550001L, 12025550002L, 12025560001L}, new long[]{1, 2, 3}, 3, 0.1);
+        bucket.remove(12025550001L);
+        bucket.add(12025550009L, 9);
+        bucket.add(12025570000L, 7);
+
+        // Act
+        long[] numbers = new long[10];
+        long[] ids = new long[10];
+        int count = bucket.range(12025550000L, 12025559999L, 0, 10, numbers, ids);
+
+        // Assert
+        assertEquals(2, bucket.count(12025550000L, 12025559999L));
+        assertEquals(4, bucket.count(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(2, count);
+        assertArrayEquals(new long[]{12025550002L, 12025550009L}, Arrays.copyOf(numbers, count));
+        assertArrayEquals(new long[]{2, 9}, Arrays.copyOf(ids, count));
+    }
+
+    @Test
+    void add_shouldRestoreRemovedNumber() {
+        // Arrange
+        NumberBucket bucket = new NumberBucket(new long[]{12025550001L}, new long[]{1}, 1, 0.1);
+        bucket.remove(12025550001L);
+
+        // Act
+        bucket.add(12025550001L, 1);
+
+        // Assert
+        long[] numbers = new long[1];
+        assertEquals(1, bucket.page(0, 1, numbers, new long[1]));
+        assertEquals(12025550001L, numbers[0]);
+    }
+
+    @Test
+    void add_shouldKeepOrderAcrossCompaction() {
+        // Arrange
+        NumberBucket bucket = new NumberBucket(new long[0], new long[0], 0, 0.1);
+
+        // Act: enough changes to merge the delta into the off-heap buffer more than once
+        for (long i = 5000; i > 0; i--) {
+            bucket.add(12025550000L + i, i);
+        }
+        for (long i = 2; i <= 5000; i += 2) {
+            bucket.remove(12025550000L + i);
+        }
+
+        // Assert
+        long[] numbers = new long[5000];
+        long[] ids = new long[5000];
+        int count = bucket.page(0, 5000, numbers, ids);
+        assertEquals(2500, count);
+        assertEquals(2500, bucket.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(12025550000L + 2 * i + 1, numbers[i]);
+            assertEquals(2 * i + 1, ids[i]);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class NumberPrefixIndexTest {
+
+    private NumberPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NumberPrefixIndex(mock(JdbcTemplate.class),
+                mock(TransactionTemplate.class), new SimpleMeterRegistry(),
+                true, 600000, 0.1);
+        index.addAll(List.of(
+                number(1, "+12025550100", NumberStatus.AVAILABLE),
+                number(2, "+12025550199", NumberStatus.AVAILABLE),
+                number(3, "+120255501", NumberStatus.AVAILABLE),
+                number(4, "+12025560100", NumberStatus.AVAILABLE),
+                number(5, "+12025550150", NumberStatus.ALLOCATED),
+                number(6, "+442025550100", NumberStatus.AVAILABLE)));
+    }
+
+    @Test
+    void count_shouldCountNumbersOfEveryLengthUnderThePrefix() {
+        // Act & Assert
+        assertEquals(3, index.count("1", NumberStatus.AVAILABLE, 1202555L, 7));
+        assertEquals(1, index.count("1", NumberStatus.ALLOCATED, 1202555L, 7));
+        assertEquals(4, index.count("1", NumberStatus.AVAILABLE, 1L, 1));
+        assertEquals(0, index.count("44", NumberStatus.AVAILABLE, 1202555L, 7));
+    }
+
+    @Test
+    void list_shouldPageShorterNumbersFirstAndFollowStatusChanges() {
+        // Arrange
+        TelephoneNumber reserved = number(2, "+12025550199", NumberStatus.RESERVED);
+        index.update(reserved, NumberStatus.AVAILABLE);
+
+        // Act
+        long[] numbers = new long[2];
+        long[] ids = new long[2];
+        int first = index.list("1", NumberStatus.AVAILABLE, 1202555L, 7, 0, 2, numbers, ids);
+        long[] firstPage = Arrays.copyOf(numbers, first);
+        int second = index.list("1", NumberStatus.AVAILABLE, 1202555L, 7, 1, 2, numbers, ids);
+
+        // Assert
+        assertArrayEquals(new long[]{120255501L, 12025550100L}, firstPage);
+        assertEquals(1, second);
+        assertEquals(12025550100L, numbers[0]);
+        assertEquals(1, index.count("1", NumberStatus.RESERVED, 1202555L, 7));
+    }
+
+    private TelephoneNumber number(long id, String number, NumberStatus status) {
+        return TelephoneNumber.builder()
+                .id(id)
+                .number(number)
+                .countryCode(number.startsWith("+44") ? "44" : "1")
+                .status(status)
+                .build();
+    }
+}
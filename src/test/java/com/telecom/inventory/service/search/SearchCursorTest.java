@@ -0,0 +1,31 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchCursorTest {
+
+    @Test
+    void decode_shouldRestoreEncodedPosition() {
+        // Arrange
+        SearchCursor cursor = new SearchCursor("pit-id==", new Object[]{"+12025550001", 42});
+
+        // Act
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+
+        // Assert
+        assertEquals("pit-id==", decoded.getPointInTimeId());
+        assertArrayEquals(new Object[]{"+12025550001", 42}, decoded.getSearchAfter());
+    }
+
+    @Test
+    void decode_shouldRejectMalformedToken() {
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode("not a cursor"));
+        assertThrows(InvalidCursorException.class, () -> SearchCursor.decode("e30"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.telecom.inventory.service.search;
+
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_shouldShareEntryBetweenEquivalentCriteria() {
+        // Act
+        cache.get(SearchCriteriaDTO.builder().areaCode("202").build(), this::search);
+        cache.get(SearchCriteriaDTO.builder().areaCode("202").status(NumberStatus.AVAILABLE).page(0).size(20)
+                .countryCode(" ").build(), this::search);
+
+        // Assert
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void invalidate_shouldEvictOnlyQueriesThatCouldListTheNumber() {
+        // Arrange
+        SearchCriteriaDTO area202 = SearchCriteriaDTO.builder().areaCode("202").build();
+        SearchCriteriaDTO area303 = SearchCriteriaDTO.builder().areaCode("303").build();
+        SearchCriteriaDTO activated = SearchCriteriaDTO.builder().status(NumberStatus.ACTIVATED).build();
+        cache.get(area202, this::search);
+        cache.get(area303, this::search);
+        cache.get(activated, this::search);
+        TelephoneNumber reserved = TelephoneNumber.builder()
+                .number("+12025550001")
+                .countryCode("1")
+                .areaCode("202")
+                .status(NumberStatus.RESERVED)
+                .build();
+
+        // Act
+        cache.invalidate(reserved, NumberStatus.AVAILABLE);
+        cache.get(area202, this::search);
+        cache.get(area303, this::search);
+        cache.get(activated, this::search);
+
+        // Assert - only the AVAILABLE page of area 202 ran again
+        assertEquals(4, searches.get());
+    }
+
+    private List<TelephoneNumberDTO> search(SearchCriteriaDTO criteria) {
+        searches.incrementAndGet();
+        return new ArrayList<>();
+    }
+}
@@ -0,0 +1,358 @@
+package com.telecom.inventory.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telecom.inventory.dto.InventoryFacetsDTO;
+import com.telecom.inventory.dto.NumberBlockDTO;
+import com.telecom.inventory.dto.SearchCriteriaDTO;
+import com.telecom.inventory.dto.TelephoneNumberDTO;
+import com.telecom.inventory.exception.InvalidRequestException;
+import com.telecom.inventory.model.NumberMatch;
+import com.telecom.inventory.model.NumberStatus;
+import com.telecom.inventory.model.TelephoneNumber;
+import com.telecom.inventory.model.TelephoneNumberDocument;
+import com.telecom.inventory.repository.NumberStatusView;
+import com.telecom.inventory.repository.TelephoneNumberRepository;
+import com.telecom.inventory.repository.TelephoneNumberSearchRepository;
+import com.telecom.inventory.service.metrics.StageMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.elasticsearch.core.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TelephoneNumberSearchServiceTest {
+
+    @Mock
+    private TelephoneNumberSearchRepository searchRepository;
+
+    @Mock
+    private TelephoneNumberRepository telephoneNumberRepository;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private RestHighLevelClient elasticsearchClient;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private NumberPrefixIndex numberPrefixIndex;
+
+    @Spy
+    private StageMetrics stageMetrics = new StageMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private TelephoneNumberSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "searchSource", SearchSource.INDEX);
+        ReflectionTestUtils.setField(searchService, "facetSize", 100);
+        // Always a cache miss
+        lenient().when(searchResultCache.get(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<SearchCriteriaDTO, List<TelephoneNumberDTO>>>getArgument(1).apply(invocation.getArgument(0)));
+    }
+
+    @Test
+    void searchTelephoneNumbers_shouldBuildResultsFromIndexedDocuments() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 15, 10, 30);
+        mockHits(document("2", "+12025550002", createdAt), document("1", "+12025550001", createdAt));
+
+        // Act
+        List<TelephoneNumberDTO> results = searchService.searchTelephoneNumbers(new SearchCriteriaDTO());
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals(2L, results.get(0).getId());
+        assertEquals("+12025550001", results.get(1).getNumber());
+        assertEquals(NumberStatus.AVAILABLE, results.get(0).getStatus());
+        assertEquals(createdAt, results.get(0).getCreatedAt());
+        verifyNoInteractions(telephoneNumberRepository);
+    }
+
+    @Test
+    void searchTelephoneNumbers_shouldKeepHitOrderWhenReadingFromDatabase() {
+        // Arrange
+        ReflectionTestUtils.setField(searchService, "searchSource", SearchSource.DATABASE);
+        mockHits(document("2", "+12025550002", null), document("1", "+12025550001", null));
+        when(telephoneNumberRepository.findAllById(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(
+                TelephoneNumber.builder().id(1L).number("+12025550001").status(NumberStatus.AVAILABLE).build(),
+                TelephoneNumber.builder().id(2L).number("+12025550002").status(NumberStatus.AVAILABLE).build()));
+
+        // Act
+        List<TelephoneNumberDTO> results = searchService.searchTelephoneNumbers(new SearchCriteriaDTO());
+
+        // Assert
+        assertEquals(2L, results.get(0).getId());
+        assertEquals(1L, results.get(1).getId());
+    }
+
+    @Test
+    void searchTelephoneNumbers_shouldAnswerFromAvailabilityIndexWhenItCan() {
+        // Arrange
+        SearchCriteriaDTO criteria = SearchCriteriaDTO.builder().countryCode("1").areaCode("202").numberType("MOBILE").build();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        TelephoneNumber first = TelephoneNumber.builder().id(1L).number("+12025550001").countryCode("1").areaCode("202")
+                .numberType("MOBILE").category("GOLD").features("SMS").status(NumberStatus.AVAILABLE).createdAt(createdAt).build();
+        TelephoneNumber reserved = TelephoneNumber.builder().id(2L).number("+12025550002").countryCode("1").areaCode("202")
+                .numberType("MOBILE").status(NumberStatus.RESERVED).build();
+        TelephoneNumber third = TelephoneNumber.builder().id(3L).number("+12025550003").countryCode("1").areaCode("202")
+                .numberType("MOBILE").status(NumberStatus.AVAILABLE).build();
+        when(availabilityIndex.canAnswer(criteria)).thenReturn(true);
+        when(availabilityIndex.searchIds(criteria)).thenReturn(List.of(1L, 2L, 3L));
+        when(telephoneNumberRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(third, reserved, first));
+
+        // Act
+        List<TelephoneNumberDTO> results = searchService.searchTelephoneNumbers(criteria);
+
+        // Assert - the same fields as any other search, in index order, without the number reserved meanwhile
+        assertEquals(2, results.size());
+        assertEquals(1L, results.get(0).getId());
+        assertEquals("GOLD", results.get(0).getCategory());
+        assertEquals("SMS", results.get(0).getFeatures());
+        assertEquals(createdAt, results.get(0).getCreatedAt());
+        assertNotNull(results.get(0).getVanityScore());
+        assertEquals(3L, results.get(1).getId());
+        verifyNoInteractions(elasticsearchOperations, searchResultCache);
+    }
+
+    @Test
+    void searchByPrefix_shouldAnswerFromPrefixIndexWhenLoaded() {
+        // Arrange
+        when(numberPrefixIndex.isReady()).thenReturn(true);
+        when(numberPrefixIndex.count("1", NumberStatus.AVAILABLE, 1202555L, 7)).thenReturn(42L);
+        when(numberPrefixIndex.list(eq("1"), eq(NumberStatus.AVAILABLE), eq(1202555L), eq(7), eq(20), eq(10), any(), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<long[]>getArgument(6)[0] = 12025550100L;
+                    invocation.<long[]>getArgument(7)[0] = 7L;
+                    invocation.<long[]>getArgument(6)[1] = 12025550101L;
+                    invocation.<long[]>getArgument(7)[1] = 8L;
+                    return 2;
+                });
+        when(telephoneNumberRepository.findAllById(List.of(7L, 8L))).thenReturn(List.of(
+                TelephoneNumber.builder().id(8L).number("+12025550101").countryCode("1").status(NumberStatus.ALLOCATED).build(),
+                TelephoneNumber.builder().id(7L).number("+12025550100").countryCode("1").areaCode("202")
+                        .numberType("MOBILE").category("GOLD").status(NumberStatus.AVAILABLE).build()));
+
+        // Act
+        NumberBlockDTO block = searchService.searchByPrefix("1", "+1 (202) 555", null, 2, 10);
+
+        // Assert - full rows like the Elasticsearch fallback, without the number allocated meanwhile
+        assertEquals("+1202555", block.getPrefix());
+        assertEquals(42L, block.getTotal());
+        assertEquals(1, block.getNumbers().size());
+        assertEquals("+12025550100", block.getNumbers().get(0).getNumber());
+        assertEquals(7L, block.getNumbers().get(0).getId());
+        assertEquals("MOBILE", block.getNumbers().get(0).getNumberType());
+        assertEquals("GOLD", block.getNumbers().get(0).getCategory());
+        verifyNoInteractions(elasticsearchOperations);
+    }
+
+    @Test
+    void searchByPrefix_shouldRejectOutOfRangePageAndSize() {
+        // Act & Assert - each maps to 400 rather than failing on the page arrays or the offset
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("1", "1202", null, -1, 10));
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("1", "1202", null, 0, 0));
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("1", "1202", null, 0, -1));
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("1", "1202", null, 0, 1001));
+        verifyNoInteractions(numberPrefixIndex, elasticsearchOperations);
+    }
+
+    @Test
+    void searchByPrefix_shouldRejectPrefixWithLeadingZero() {
+        // Act & Assert - "0044" would otherwise be looked up as the block of +44
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("44", "0044", null, 0, 10));
+        assertThrows(InvalidRequestException.class, () -> searchService.searchByPrefix("44", "+0 44", null, 0, 10));
+        verifyNoInteractions(numberPrefixIndex, elasticsearchOperations);
+    }
+
+    @Test
+    void lookupNumbers_shouldResolveInBatchesAndAnswerInRequestOrder() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(searchService, "lookupBatchSize", 2);
+        when(objectMapper.writeValueAsBytes(any())).thenAnswer(invocation ->
+                new ObjectMapper().writeValueAsBytes(invocation.getArgument(0)));
+        NumberStatusView allocated = statusView(2L, "+12025550002", NumberStatus.ALLOCATED);
+        NumberStatusView available = statusView(3L, "+12025550003", NumberStatus.AVAILABLE);
+        when(telephoneNumberRepository.findStatusByNumberIn(Set.of("+12025550001", "+12025550002")))
+                .thenReturn(List.of(allocated));
+        when(telephoneNumberRepository.findStatusByNumberIn(Set.of("+12025550003"))).thenReturn(List.of(available));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        searchService.lookupNumbers(Arrays.asList("+12025550001", "+12025550002", "+12025550003"), outputStream);
+
+        // Assert
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"found\":false"));
+        assertTrue(lines[1].contains("\"status\":\"ALLOCATED\""));
+        assertTrue(lines[2].contains("\"id\":3"));
+        verify(telephoneNumberRepository, times(2)).findStatusByNumberIn(any());
+    }
+
+    @Test
+    void searchTelephoneNumbers_shouldLookUpPartialNumbersInAnalyzedSubFields() {
+        // Arrange
+        mockHits();
+        SearchCriteriaDTO suffix = SearchCriteriaDTO.builder().number("77-77").numberMatch(NumberMatch.SUFFIX).build();
+        SearchCriteriaDTO contains = SearchCriteriaDTO.builder().number("2024").build();
+        SearchCriteriaDTO prefix = SearchCriteriaDTO.builder().number("+1 202").numberMatch(NumberMatch.PREFIX).build();
+
+        // Act
+        searchService.searchTelephoneNumbers(suffix);
+        searchService.searchTelephoneNumbers(contains);
+        searchService.searchTelephoneNumbers(prefix);
+
+        // Assert
+        ArgumentCaptor<NativeSearchQuery> captor = ArgumentCaptor.forClass(NativeSearchQuery.class);
+        verify(elasticsearchOperations, times(3)).search(captor.capture(), eq(TelephoneNumberDocument.class));
+        List<String> queries = captor.getAllValues().stream()
+                .map(query -> query.getQuery().toString().replaceAll("\\s", ""))
+                .collect(Collectors.toList());
+        assertTrue(queries.get(0).contains("\"number.suffix\":{\"value\":\"7777\""));
+        assertTrue(queries.get(1).contains("\"number.contains\":{\"value\":\"2024\""));
+        assertTrue(queries.get(2).contains("\"number.prefix\":{\"value\":\"1202\""));
+        assertFalse(queries.get(1).contains("wildcard"));
+    }
+
+    @Test
+    void searchTelephoneNumbers_shouldIgnoreNumberMadeOfSeparatorsOnly() {
+        // Arrange
+        mockHits();
+        SearchCriteriaDTO criteria = SearchCriteriaDTO.builder().number("--").countryCode("1").build();
+
+        // Act
+        searchService.searchTelephoneNumbers(criteria);
+
+        // Assert
+        ArgumentCaptor<NativeSearchQuery> captor = ArgumentCaptor.forClass(NativeSearchQuery.class);
+        verify(elasticsearchOperations).search(captor.capture(), eq(TelephoneNumberDocument.class));
+        String query = captor.getValue().getQuery().toString();
+        assertFalse(query.contains("wildcard"));
+        assertFalse(query.contains("\"number"));
+        assertTrue(query.contains("\"countryCode\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getFacets_shouldCountWithAggregationsOnly() {
+        // Arrange
+        List<Terms> terms = Stream.of("status", "countryCode", "areaCode", "numberType", "category")
+                .map(name -> {
+                    Terms facet = mock(Terms.class);
+                    when(facet.getName()).thenReturn(name);
+                    return facet;
+                })
+                .collect(Collectors.toList());
+        doReturn(List.of(bucket("AVAILABLE", 700L), bucket("ALLOCATED", 300L))).when(terms.get(0)).getBuckets();
+        doReturn(List.of(bucket("1", 1000L))).when(terms.get(1)).getBuckets();
+        for (Terms facet : terms.subList(2, 5)) {
+            doReturn(List.of()).when(facet).getBuckets();
+        }
+        SearchHits<TelephoneNumberDocument> searchHits = mock(SearchHits.class);
+        when(searchHits.hasAggregations()).thenReturn(true);
+        doReturn(new ElasticsearchAggregations(new Aggregations(terms))).when(searchHits).getAggregations();
+        when(searchHits.getTotalHits()).thenReturn(1000L);
+        when(elasticsearchOperations.search(any(Query.class), eq(TelephoneNumberDocument.class))).thenReturn(searchHits);
+
+        // Act
+        InventoryFacetsDTO facets = searchService.getFacets(SearchCriteriaDTO.builder().countryCode("1").build());
+
+        // Assert
+        assertEquals(1000L, facets.getTotal());
+        assertEquals(List.of("AVAILABLE", "ALLOCATED"), List.copyOf(facets.getStatus().keySet()));
+        assertEquals(300L, facets.getStatus().get("ALLOCATED"));
+        assertEquals(1000L, facets.getCountryCode().get("1"));
+        assertTrue(facets.getAreaCode().isEmpty());
+
+        ArgumentCaptor<NativeSearchQuery> captor = ArgumentCaptor.forClass(NativeSearchQuery.class);
+        verify(elasticsearchOperations).search(captor.capture(), eq(TelephoneNumberDocument.class));
+        assertEquals(0, captor.getValue().getMaxResults());
+        assertEquals(5, captor.getValue().getAggregations().size());
+        assertFalse(captor.getValue().getQuery().toString().contains("\"status\""));
+    }
+
+    private NumberStatusView statusView(Long id, String number, NumberStatus status) {
+        NumberStatusView view = mock(NumberStatusView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getNumber()).thenReturn(number);
+        lenient().when(view.getStatus()).thenReturn(status);
+        return view;
+    }
+
+    private Terms.Bucket bucket(String key, long count) {
+        Terms.Bucket bucket = mock(Terms.Bucket.class);
+        when(bucket.getKeyAsString()).thenReturn(key);
+        when(bucket.getDocCount()).thenReturn(count);
+        return bucket;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockHits(TelephoneNumberDocument... documents) {
+        SearchHits<TelephoneNumberDocument> searchHits = mock(SearchHits.class);
+        List<SearchHit<TelephoneNumberDocument>> hits = Arrays.stream(documents)
+                .map(document -> {
+                    SearchHit<TelephoneNumberDocument> hit = mock(SearchHit.class);
+                    when(hit.getContent()).thenReturn(document);
+                    return hit;
+                })
+                .collect(Collectors.toList());
+        when(searchHits.getSearchHits()).thenReturn(hits);
+        when(elasticsearchOperations.search(any(Query.class), eq(TelephoneNumberDocument.class))).thenReturn(searchHits);
+    }
+
+    private TelephoneNumberDocument document(String id, String number, LocalDateTime createdAt) {
+        return TelephoneNumberDocument.builder()
+                .id(id)
+                .number(number)
+                .countryCode("1")
+                .areaCode("202")
+                .status(NumberStatus.AVAILABLE.name())
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.telecom.inventory.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberValidatorTest {
+
+    @Test
+    void normalize_shouldProduceE164WithoutSeparators() {
+        // Arrange
+        char[] out = new char[PhoneNumberValidator.MAX_LENGTH];
+
+        // Act & Assert
+        assertEquals("+12025550001", normalize(" +1 (202) 555-0001 ", out));
+        assertEquals("+442079460958", normalize("0044 20 7946 0958", out));
+        assertEquals("+12025550001", normalize("1.202.555.0001", out));
+        assertEquals(-1, PhoneNumberValidator.normalize("+1 202 555 CALL", out));
+        assertEquals(-1, PhoneNumberValidator.normalize("+1234567890123456", out));
+    }
+
+    @Test
+    void normalizePhoneNumber_shouldReturnSameInstanceWhenAlreadyNormalized() {
+        String number = "+12025550001";
+        assertSame(number, PhoneNumberValidator.normalizePhoneNumber(number));
+        assertEquals("+12025550001", PhoneNumberValidator.normalizePhoneNumber("1 (202) 555-0001"));
+    }
+
+    @Test
+    void isValidE164_shouldApplyCountryCodeRules() {
+        assertTrue(PhoneNumberValidator.isValidE164("+12025550001", "1"));
+        assertTrue(PhoneNumberValidator.isValidE164("+442079460958", "+44"));
+        assertTrue(PhoneNumberValidator.isValidE164("+3545551234", "354"));
+        assertTrue(PhoneNumberValidator.isValidE164("+442079460958", null));
+
+        // Wrong country code, NANP number of the wrong length, country code starting with 0
+        assertFalse(PhoneNumberValidator.isValidE164("+442079460958", "4"));
+        assertFalse(PhoneNumberValidator.isValidE164("+35455512345", "35"));
+        assertFalse(PhoneNumberValidator.isValidE164("+1202555000", "1"));
+        assertFalse(PhoneNumberValidator.isValidE164("+0202555000", null));
+        assertFalse(PhoneNumberValidator.isValidE164("12025550001", "1"));
+    }
+
+    @Test
+    void isValidPhoneNumber_shouldAcceptTenToFifteenDigits() {
+        assertTrue(PhoneNumberValidator.isValidPhoneNumber("+12025550001"));
+        assertTrue(PhoneNumberValidator.isValidPhoneNumber("2025550001"));
+        assertFalse(PhoneNumberValidator.isValidPhoneNumber("+202555000"));
+        assertFalse(PhoneNumberValidator.isValidPhoneNumber("+1202555000a"));
+    }
+
+    @Test
+    void stripSeparators_shouldKeepPartialInput() {
+        assertEquals("202555", PhoneNumberValidator.stripSeparators("(202) 555"));
+        String partial = "+1202";
+        assertSame(partial, PhoneNumberValidator.stripSeparators(partial));
+    }
+
+    @Test
+    void searchTerm_shouldBeNullWhenOnlySeparatorsAreGiven() {
+        assertEquals("1202555", PhoneNumberValidator.searchTerm("+1 (202) 555"));
+        assertNull(PhoneNumberValidator.searchTerm("--"));
+        assertNull(PhoneNumberValidator.searchTerm(" + "));
+        assertNull(PhoneNumberValidator.searchTerm(null));
+    }
+
+    private static String normalize(String input, char[] out) {
+        int length = PhoneNumberValidator.normalize(input, out);
+        return new String(out, 0, length);
+    }
+}
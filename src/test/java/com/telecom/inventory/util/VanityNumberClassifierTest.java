@@ -0,0 +1,43 @@
+package com.telecom.inventory.util;
+
+import com.telecom.inventory.model.VanityPattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VanityNumberClassifierTest {
+
+    @Test
+    void classify_shouldTagPatternsOfLocalNumber() {
+        assertEquals(EnumSet.of(VanityPattern.REPEATING), patterns("+12025557777"));
+        assertEquals(EnumSet.of(VanityPattern.ASCENDING), patterns("+12025551234"));
+        assertEquals(EnumSet.of(VanityPattern.DESCENDING), patterns("+12025559876"));
+        assertEquals(EnumSet.of(VanityPattern.MIRROR), patterns("+12025551221"));
+        assertEquals(EnumSet.of(VanityPattern.PAIRS), patterns("+12025551212"));
+        assertEquals(EnumSet.of(VanityPattern.ROUND), patterns("+12025552000"));
+        // Country and area code digits do not count
+        assertEquals(EnumSet.noneOf(VanityPattern.class), patterns("+11111114937"));
+    }
+
+    @Test
+    void classify_shouldScoreLongerPatternsHigher() {
+        // Arrange
+        int ordinary = VanityNumberClassifier.classify("+12025554937").getScore();
+        int repeatingFour = VanityNumberClassifier.classify("+12025557777").getScore();
+        int repeatingSeven = VanityNumberClassifier.classify("+12027777777").getScore();
+
+        // Assert
+        assertEquals(0, ordinary);
+        assertTrue(repeatingFour > ordinary);
+        assertTrue(repeatingSeven > repeatingFour);
+        assertTrue(repeatingSeven <= VanityNumberClassifier.MAX_SCORE);
+    }
+
+    private Set<VanityPattern> patterns(String number) {
+        return VanityNumberClassifier.classify(number).getPatterns();
+    }
+}